@@ -0,0 +1,117 @@
+package com.github.tommyettinger.benchmarks;
+
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.github.tommyettinger.LittleEndianDataInputStream;
+import com.github.tommyettinger.Renderer;
+import com.github.tommyettinger.SpotVox;
+import com.github.tommyettinger.io.VoxIOExtended;
+import com.github.tommyettinger.io.VoxModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Loads the models that benchmarks run on. A name like {@code "Eye-Tyrant"} loads {@code vox/Eye-Tyrant.vox} from
+ * the folder given by the {@code spotvox.voxDir} system property (default {@code vox}, relative to the project root).
+ * The names {@code "sphere-N"} and {@code "noise-N"} instead build a synthetic N-by-N-by-N model: a solid, banded
+ * sphere, or a seeded random scattering of voxels that has many small disconnected parts.
+ * <br>
+ * Loading any model sets the static bounds and palette in {@link VoxIOExtended} the same way the command-line tool
+ * does, so {@link Renderer#drawSplats(byte[][][], float, float, float, float, float, float, com.github.tommyettinger.ds.IntObjectMap)}
+ * sees the same state it would in a real run.
+ */
+public final class BenchmarkModels {
+    public static final String VOX_DIR = System.getProperty("spotvox.voxDir", "vox");
+
+    private BenchmarkModels() {
+    }
+
+    public static byte[] readBytes(String name) {
+        try {
+            return Files.readAllBytes(new File(VOX_DIR, name + ".vox").toPath());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read model " + name + " from " + VOX_DIR, e);
+        }
+    }
+
+    public static byte[][][] load(String name) {
+        if(name.startsWith("sphere-"))
+            return synthetic(sphere(Integer.parseInt(name.substring(7))));
+        if(name.startsWith("noise-"))
+            return synthetic(noise(Integer.parseInt(name.substring(6)), 0x5EED));
+        VoxModel model = VoxIOExtended.readVox(new LittleEndianDataInputStream(new ByteArrayInputStream(readBytes(name))));
+        if(model == null)
+            throw new IllegalArgumentException("Model " + name + " is not a valid .vox file.");
+        return VoxIOExtended.mergeModel(model, -1);
+    }
+
+    /**
+     * Doubles the size of voxels {@code scale - 1} times, smoothing as SpotVox does, and updates the bounds to match.
+     */
+    public static byte[][][] scale(byte[][][] voxels, int scale) {
+        for (int s = 1; s < scale; s <<= 1) {
+            voxels = VoxIOExtended.scaleModel(voxels, true);
+        }
+        return voxels;
+    }
+
+    /**
+     * Creates and initializes a Renderer with the same settings SpotVox uses by default.
+     */
+    public static Renderer renderer(int size, int scale, String edge, boolean normals) {
+        GdxNativesLoader.load();
+        Renderer renderer = new Renderer(size);
+        renderer.palette(VoxIOExtended.lastPalette);
+        renderer.computeNormals = normals;
+        renderer.blurSigma = 0.9;
+        renderer.init();
+        renderer.outline = SpotVox.edgeMode(edge);
+        renderer.expand = 3 * scale;
+        renderer.saturation(0f);
+        return renderer;
+    }
+
+    public static byte[][][] sphere(int size) {
+        byte[][][] voxels = new byte[size][size][size];
+        final float center = (size - 1) * 0.5f, radius = size * 0.5f - 2f;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (int z = 0; z < size; z++) {
+                    float dx = x - center, dy = y - center, dz = z - center;
+                    if(dx * dx + dy * dy + dz * dz <= radius * radius)
+                        voxels[x][y][z] = (byte) (1 + z * 6 / size);
+                }
+            }
+        }
+        return voxels;
+    }
+
+    public static byte[][][] noise(int size, long seed) {
+        byte[][][] voxels = new byte[size][size][size];
+        Random random = new Random(seed);
+        for (int x = 2; x < size - 2; x++) {
+            for (int y = 2; y < size - 2; y++) {
+                for (int z = 2; z < size - 2; z++) {
+                    if(random.nextInt(10) < 3)
+                        voxels[x][y][z] = (byte) (1 + random.nextInt(15));
+                }
+            }
+        }
+        return voxels;
+    }
+
+    private static byte[][][] synthetic(byte[][][] voxels) {
+        System.arraycopy(VoxIOExtended.defaultPalette, 0, VoxIOExtended.lastPalette, 0, 256);
+        VoxIOExtended.lastMaterials.clear();
+        VoxIOExtended.minX = 0;
+        VoxIOExtended.minY = 0;
+        VoxIOExtended.minZ = 0;
+        VoxIOExtended.maxX = voxels.length - 1;
+        VoxIOExtended.maxY = voxels[0].length - 1;
+        VoxIOExtended.maxZ = voxels[0][0].length - 1;
+        return voxels;
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.tommyettinger.benchmarks;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.github.tommyettinger.Renderer;
+import com.github.tommyettinger.Tools3D;
+import com.github.tommyettinger.io.VoxIOExtended;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one full frame of {@link Renderer#drawSplats(byte[][][], float, float, float, float, float, float, com.github.tommyettinger.ds.IntObjectMap)},
+ * which is a splat of every voxel followed by a blit, at a diagonal angle. Scale 2 and 4 use a model smoothed up the
+ * same way SpotVox does for its larger outputs. The splat-only benchmarks compare a diagonal angle with a quarter-turn,
+ * which takes the exact integer path, and with the diagonal angle projected in fixed point (see
+ * {@link Renderer#fixedPoint}); all include clearing the buffers. The eight-angle benchmarks render the eight yaws SpotVox uses by default, one at a time or all in one pass
+ * over the model with {@link Renderer#drawSplatsBatch(byte[][][], Renderer[], float[], int, float, float, com.github.tommyettinger.ds.IntObjectMap)}.
+ * The baked benchmark draws the same frame as drawSplats, lit with {@link Renderer#ambient} computed in setup, and the
+ * voxel-normals benchmark draws it with normal maps made from {@link Renderer#voxelNormals}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RendererBenchmark {
+    @Param({"Eye-Tyrant", "Tree", "sphere-32"})
+    public String model;
+
+    @Param({"1", "2"})
+    public int scale;
+
+    @Param({"none", "light", "block"})
+    public String edge;
+
+    @Param({"false", "true"})
+    public boolean normals;
+
+    private byte[][][] voxels;
+    private Renderer renderer, bakedRenderer, normalRenderer, fixedRenderer;
+    private final Renderer[] batch = new Renderer[8];
+    private final float[] yaws = {0f, 0.125f, 0.25f, 0.375f, 0.5f, 0.625f, 0.75f, 0.875f};
+
+    @Setup(Level.Trial)
+    public void setup() {
+        voxels = BenchmarkModels.scale(BenchmarkModels.load(model), scale);
+        renderer = BenchmarkModels.renderer(voxels.length, scale, edge, normals);
+        renderer.materialMap = VoxIOExtended.lastMaterials;
+        bakedRenderer = BenchmarkModels.renderer(voxels.length, scale, edge, normals);
+        bakedRenderer.materialMap = VoxIOExtended.lastMaterials;
+        bakedRenderer.ambient = Tools3D.ambientOcclusion(voxels, scale << 1, null);
+        normalRenderer = BenchmarkModels.renderer(voxels.length, scale, edge, normals);
+        normalRenderer.materialMap = VoxIOExtended.lastMaterials;
+        normalRenderer.voxelNormals = Tools3D.surfaceNormals(voxels, scale + 1, null);
+        fixedRenderer = BenchmarkModels.renderer(voxels.length, scale, edge, normals);
+        fixedRenderer.materialMap = VoxIOExtended.lastMaterials;
+        fixedRenderer.fixedPoint = true;
+        batch[0] = renderer;
+        for (int i = 1; i < batch.length; i++) {
+            batch[i] = BenchmarkModels.renderer(voxels.length, scale, edge, normals);
+            batch[i].materialMap = VoxIOExtended.lastMaterials;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispose(renderer);
+        dispose(bakedRenderer);
+        dispose(normalRenderer);
+        dispose(fixedRenderer);
+        // batch[0] is the shared renderer, which was already disposed above
+        for (int i = 1; i < batch.length; i++) {
+            dispose(batch[i]);
+        }
+    }
+
+    private static void dispose(Renderer r) {
+        r.pixmap.dispose();
+        if(r.normalMap != null)
+            r.normalMap.dispose();
+    }
+
+    @Benchmark
+    public Pixmap drawSplats() {
+        return renderer.drawSplats(voxels, 0.125f, 0f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+    }
+
+    @Benchmark
+    public Pixmap drawSplatsBaked() {
+        return bakedRenderer.drawSplats(voxels, 0.125f, 0f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+    }
+
+    @Benchmark
+    public Pixmap drawSplatsVoxelNormals() {
+        return normalRenderer.drawSplats(voxels, 0.125f, 0f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+    }
+
+    @Benchmark
+    public Renderer splatDiagonal() {
+        renderer.clear();
+        renderer.splatOnly(voxels, 0.125f, 0f, 0f, 0f, 0f, 0f);
+        return renderer;
+    }
+
+    @Benchmark
+    public Renderer splatFixedPoint() {
+        fixedRenderer.clear();
+        fixedRenderer.splatOnly(voxels, 0.125f, 0f, 0f, 0f, 0f, 0f);
+        return fixedRenderer;
+    }
+
+    @Benchmark
+    public Renderer splatQuarterTurn() {
+        renderer.clear();
+        renderer.splatOnly(voxels, 0.25f, 0f, 0f, 0f, 0f, 0f);
+        return renderer;
+    }
+
+    @Benchmark
+    public Pixmap drawEightAngles() {
+        Pixmap last = null;
+        for (float yaw : yaws) {
+            last = renderer.drawSplats(voxels, yaw, 0f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public Renderer[] drawEightAnglesBatched() {
+        Renderer.drawSplatsBatch(voxels, batch, yaws, yaws.length, 0f, 0f, VoxIOExtended.lastMaterials);
+        return batch;
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.tommyettinger.benchmarks;
+
+import com.github.tommyettinger.Tools3D;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the grid operations in {@link Tools3D} that SpotVox and the .vox loader use on whole models.
+ * The in-place operations get a fresh copy of the model before each invocation. The bounded scalers reuse their
+ * result and scratch arrays across invocations, the way a caller scaling many frames or models would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Tools3DBenchmark {
+    @Param({"Eye-Tyrant", "Tree", "teapot", "sphere-64", "noise-48"})
+    public String model;
+
+    private byte[][][] voxels;
+    private byte[][][] work;
+    private byte[][][] scaled, nextColors, nextSlopes, oriented;
+    private short[][][] normals;
+    private int[] tight;
+    private final int[] bounds = new int[6];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        voxels = BenchmarkModels.load(model);
+        work = Tools3D.deepCopy(voxels);
+        final int size = voxels.length;
+        scaled = new byte[size << 1][size << 1][size << 1];
+        nextColors = new byte[size][size][size];
+        nextSlopes = new byte[size][size][size];
+        oriented = new byte[size][size][size];
+        normals = new short[size][size][size];
+        tight = Tools3D.tightBounds(voxels, new int[]{0, 0, 0, size - 1, size - 1, size - 1});
+    }
+
+    @Setup(Level.Invocation)
+    public void refresh() {
+        Tools3D.deepCopyInto(voxels, work);
+    }
+
+    @Benchmark
+    public byte[][][] simpleScale() {
+        return Tools3D.simpleScale(voxels);
+    }
+
+    @Benchmark
+    public byte[][][] simpleScaleParallel() {
+        return Tools3D.simpleScaleParallel(voxels);
+    }
+
+    @Benchmark
+    public byte[][][] simpleScaleBounded() {
+        System.arraycopy(tight, 0, bounds, 0, 6);
+        return Tools3D.simpleScale(voxels, scaled, nextColors, nextSlopes, bounds);
+    }
+
+    @Benchmark
+    public byte[][][] simpleScaleBoundedParallel() {
+        System.arraycopy(tight, 0, bounds, 0, 6);
+        return Tools3D.simpleScaleParallel(voxels, scaled, nextColors, nextSlopes, bounds);
+    }
+
+    @Benchmark
+    public byte[][][] smoothScale() {
+        return Tools3D.smoothScale(voxels);
+    }
+
+    @Benchmark
+    public byte[][][] smoothScaleParallel() {
+        return Tools3D.smoothScaleParallel(voxels);
+    }
+
+    @Benchmark
+    public byte[][][] smoothScaleBounded() {
+        System.arraycopy(tight, 0, bounds, 0, 6);
+        return Tools3D.smoothScale(voxels, scaled, nextColors, nextSlopes, bounds);
+    }
+
+    @Benchmark
+    public byte[][][] blockyScale() {
+        return Tools3D.blockyScale(voxels);
+    }
+
+    @Benchmark
+    public byte[][][] blockyScaleBounded() {
+        System.arraycopy(tight, 0, bounds, 0, 6);
+        return Tools3D.blockyScale(voxels, scaled, bounds);
+    }
+
+    @Benchmark
+    public byte[][][] rotate() {
+        return Tools3D.rotate(voxels, 1);
+    }
+
+    @Benchmark
+    public byte[][][] orientInto() {
+        return Tools3D.orient(voxels, Tools3D.orientation(1, 1, 0, false), oriented);
+    }
+
+    @Benchmark
+    public byte[][][] orientInPlace() {
+        return Tools3D.orientInPlace(work, Tools3D.orientation(1, 1, 0, false));
+    }
+
+    @Benchmark
+    public byte[][][] soakInPlace() {
+        Tools3D.soakInPlace(work);
+        return work;
+    }
+
+    @Benchmark
+    public byte[][][] hollowInPlace() {
+        return Tools3D.hollowInPlace(work);
+    }
+
+    @Benchmark
+    public byte[][][] runCA() {
+        return Tools3D.runCA(voxels, 2);
+    }
+
+    @Benchmark
+    public byte[][][] runCAParallel() {
+        return Tools3D.runCAParallel(voxels, 2);
+    }
+
+    @Benchmark
+    public byte[][][] ambientOcclusion() {
+        return Tools3D.ambientOcclusion(voxels, 2, oriented);
+    }
+
+    @Benchmark
+    public short[][][] surfaceNormals() {
+        return Tools3D.surfaceNormals(voxels, 2, normals);
+    }
+
+    @Benchmark
+    public byte[][][] largestPart() {
+        return Tools3D.largestPart(voxels);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.tommyettinger.benchmarks;
+
+import com.github.tommyettinger.LittleEndianDataInputStream;
+import com.github.tommyettinger.io.VoxIOExtended;
+import com.github.tommyettinger.io.VoxModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link VoxIOExtended#readVox(LittleEndianDataInputStream)} on files already read into memory, so disk speed
+ * doesn't factor in. This includes the {@link com.github.tommyettinger.Tools3D#soakInPlace(byte[][][])} call that
+ * every loaded grid goes through.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VoxIOBenchmark {
+    @Param({"Bear", "Copter", "Eye-Tyrant", "FigureSplit", "Lomuk", "Person", "Tree", "Truck", "teapot"})
+    public String model;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bytes = BenchmarkModels.readBytes(model);
+    }
+
+    @Benchmark
+    public VoxModel readVox() {
+        return VoxIOExtended.readVox(new LittleEndianDataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
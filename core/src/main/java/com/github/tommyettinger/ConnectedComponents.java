@@ -0,0 +1,148 @@
+package com.github.tommyettinger;
+
+import java.util.Arrays;
+
+/**
+ * Labels the 6-connected groups of non-zero voxels in a {@code byte[][][]} model in one sweep, using a breadth-first
+ * search with a primitive int queue. After {@link #label(byte[][][])}, every filled cell has the id of its group in
+ * {@link #labels}, and each group's voxel count and bounds are in {@link #sizes} and {@link #bounds}.
+ * <br>
+ * Group ids start at 1 and are given out in the order the first cell of each group is found, scanning x, then y,
+ * then z, the same order {@link Tools3D#firstTight(byte[][][])} uses. Cells are indexed the same way, as
+ * {@code zs * (x * ys + y) + z}. A label of 0 means the cell is empty.
+ */
+public class ConnectedComponents {
+    public int sizeX, sizeY, sizeZ;
+    /**
+     * The group id of each cell, indexed by {@code sizeZ * (x * sizeY + y) + z}, or 0 for empty cells.
+     */
+    public int[] labels = new int[0];
+    /**
+     * How many groups were found by the last call to {@link #label(byte[][][])}.
+     */
+    public int count;
+    /**
+     * The number of voxels in each group, indexed by group id; index 0 is unused.
+     */
+    public int[] sizes = new int[16];
+    /**
+     * The inclusive bounds of each group, 6 ints per group id as {@code minX, minY, minZ, maxX, maxY, maxZ}, starting
+     * at {@code id * 6}; the first 6 are unused.
+     */
+    public int[] bounds = new int[96];
+    private int[] queue = new int[1024];
+
+    public ConnectedComponents() {
+    }
+
+    public ConnectedComponents(byte[][][] voxels) {
+        label(voxels);
+    }
+
+    /**
+     * Finds every 6-connected group of non-zero voxels in voxels. The arrays in this object are reused if they are
+     * large enough, so labeling many models of the same size only allocates once.
+     * @param voxels a 3D byte array that will not be modified
+     * @return this, for chaining
+     */
+    public ConnectedComponents label(byte[][][] voxels) {
+        final int xs = sizeX = voxels.length, ys = sizeY = voxels[0].length, zs = sizeZ = voxels[0][0].length;
+        final int volume = xs * ys * zs, planeX = ys * zs;
+        if(labels.length < volume) labels = new int[volume];
+        else Arrays.fill(labels, 0, volume, 0);
+        count = 0;
+        for (int x = 0, i = 0; x < xs; x++) {
+            for (int y = 0; y < ys; y++) {
+                final byte[] column = voxels[x][y];
+                for (int z = 0; z < zs; z++, i++) {
+                    if(column[z] == 0 || labels[i] != 0) continue;
+                    final int id = ++count;
+                    if(id >= sizes.length) {
+                        sizes = Arrays.copyOf(sizes, id << 1);
+                        bounds = Arrays.copyOf(bounds, id * 12);
+                    }
+                    int minX = x, minY = y, minZ = z, maxX = x, maxY = y, maxZ = z;
+                    labels[i] = id;
+                    queue[0] = i;
+                    int head = 0, tail = 1;
+                    while (head < tail) {
+                        final int c = queue[head++];
+                        final int cx = c / planeX, cy = c / zs % ys, cz = c % zs;
+                        if(cx < minX) minX = cx; else if(cx > maxX) maxX = cx;
+                        if(cy < minY) minY = cy; else if(cy > maxY) maxY = cy;
+                        if(cz < minZ) minZ = cz; else if(cz > maxZ) maxZ = cz;
+                        if(tail + 6 > queue.length) queue = Arrays.copyOf(queue, queue.length << 1);
+                        if(cx > 0 && labels[c - planeX] == 0 && voxels[cx - 1][cy][cz] != 0) {
+                            labels[c - planeX] = id;
+                            queue[tail++] = c - planeX;
+                        }
+                        if(cx < xs - 1 && labels[c + planeX] == 0 && voxels[cx + 1][cy][cz] != 0) {
+                            labels[c + planeX] = id;
+                            queue[tail++] = c + planeX;
+                        }
+                        if(cy > 0 && labels[c - zs] == 0 && voxels[cx][cy - 1][cz] != 0) {
+                            labels[c - zs] = id;
+                            queue[tail++] = c - zs;
+                        }
+                        if(cy < ys - 1 && labels[c + zs] == 0 && voxels[cx][cy + 1][cz] != 0) {
+                            labels[c + zs] = id;
+                            queue[tail++] = c + zs;
+                        }
+                        if(cz > 0 && labels[c - 1] == 0 && voxels[cx][cy][cz - 1] != 0) {
+                            labels[c - 1] = id;
+                            queue[tail++] = c - 1;
+                        }
+                        if(cz < zs - 1 && labels[c + 1] == 0 && voxels[cx][cy][cz + 1] != 0) {
+                            labels[c + 1] = id;
+                            queue[tail++] = c + 1;
+                        }
+                    }
+                    sizes[id] = tail;
+                    final int b = id * 6;
+                    bounds[b] = minX;
+                    bounds[b + 1] = minY;
+                    bounds[b + 2] = minZ;
+                    bounds[b + 3] = maxX;
+                    bounds[b + 4] = maxY;
+                    bounds[b + 5] = maxZ;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gets the id of the group with the most voxels, or the first such group if there is a tie.
+     * @return the id of the largest group, or 0 if the last labeled model was empty
+     */
+    public int largest() {
+        int best = 0;
+        for (int id = 1; id <= count; id++) {
+            if(sizes[id] > sizes[best]) best = id;
+        }
+        return best;
+    }
+
+    /**
+     * Copies only the voxels in group {@code id} from voxels into {@code into}, leaving every other cell 0. This only
+     * visits the cells inside that group's bounds, apart from clearing into first.
+     * @param voxels the same 3D byte array that was labeled; will not be modified
+     * @param id a group id from 1 to {@link #count}, inclusive
+     * @param into a 3D byte array the same size as voxels, or null to create one; will be modified
+     * @return into, or a new 3D byte array, holding just the chosen group
+     */
+    public byte[][][] extract(byte[][][] voxels, int id, byte[][][] into) {
+        if(into == null) into = new byte[sizeX][sizeY][sizeZ];
+        else Tools3D.fill(into, 0);
+        if(id <= 0 || id > count) return into;
+        final int b = id * 6;
+        for (int x = bounds[b]; x <= bounds[b + 3]; x++) {
+            for (int y = bounds[b + 1]; y <= bounds[b + 4]; y++) {
+                for (int z = bounds[b + 2], i = sizeZ * (x * sizeY + y) + z; z <= bounds[b + 5]; z++, i++) {
+                    if(labels[i] == id) into[x][y][z] = voxels[x][y][z];
+                }
+            }
+        }
+        return into;
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes rendered frames, one after another, to a stream that a video encoder can read as they are made, such as
+ * standard output or a named pipe, instead of to image files. Raw frames go straight from the Pixmap's buffer to the
+ * stream, one row at a time, top row first; Y4M frames are converted into one reused set of planes first. Every frame
+ * in a stream must be the same size.
+ * <br>
+ * There are two formats. Raw RGBA is just each frame's bytes, with alpha kept, so the reader must be told the size,
+ * such as with {@code ffmpeg -f rawvideo -pix_fmt rgba -s WxH -r FPS -i -}. Y4M (YUV4MPEG2) starts with a header
+ * that gives the size and frame rate, so {@code ffmpeg -i -} is enough; it has no alpha, so frames are drawn over
+ * black, and it uses 4:4:4 chroma with the BT.601 limited range, so encoders that want 4:2:0 may need
+ * {@code -pix_fmt yuv420p}.
+ */
+public class FrameStream implements Disposable {
+    private static final byte[] FRAME = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+    public final boolean y4m;
+    public final int fps;
+    private final OutputStream out;
+    private int width = -1, height = -1;
+    private byte[] row = new byte[0];
+    /**
+     * For Y4M, one frame's Y, Cb, and Cr planes, one after another, as they are written.
+     */
+    private byte[] planes = new byte[0];
+    /**
+     * Counts frames written so far.
+     */
+    public int frames;
+
+    /**
+     * @param out where frames go; this is buffered here, and closed by {@link #dispose()}
+     * @param y4m if true, writes a Y4M stream; if false, writes raw RGBA
+     * @param fps frames per second, which only Y4M records
+     */
+    public FrameStream(OutputStream out, boolean y4m, int fps) {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.y4m = y4m;
+        this.fps = fps;
+    }
+
+    /**
+     * Opens the stream at path, which can be a named pipe, or standard output if path is "-". Writing to a named pipe
+     * blocks until something reads from it. When using standard output, anything else printed with System.out would
+     * get mixed into the frames, so it should be sent elsewhere first, such as with {@code System.setOut(System.err)}.
+     * @param path a file or named pipe, or "-" for standard output
+     * @param y4m if true, writes a Y4M stream; if false, writes raw RGBA
+     * @param fps frames per second, which only Y4M records
+     */
+    public static FrameStream open(String path, boolean y4m, int fps) {
+        try {
+            return new FrameStream("-".equals(path) ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(path), y4m, fps);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error opening stream: " + path, e);
+        }
+    }
+
+    /**
+     * Gets whether a format name, as given on the command line, means {@link #y4m}.
+     * @param format "rgba" or "y4m"; anything else is treated as "y4m"
+     */
+    public static boolean isY4M(String format) {
+        return !"rgba".equals(format);
+    }
+
+    /**
+     * Writes pixmap as the next frame; the last row of the Pixmap is written first, as with the PNGs SpotVox writes.
+     * @param pixmap an RGBA8888 Pixmap, the same size as every earlier frame
+     * @throws GdxRuntimeException if the size changed or the stream can't be written to
+     */
+    public void write(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        if(width < 0) {
+            width = w;
+            height = h;
+            row = new byte[w << 2];
+            if(y4m) {
+                planes = new byte[w * h * 3];
+                final byte[] header = ("YUV4MPEG2 W" + w + " H" + h + " F" + fps + ":1 Ip A1:1 C444\n").getBytes(StandardCharsets.US_ASCII);
+                write(header, header.length);
+            }
+        }
+        else if(w != width || h != height)
+            throw new GdxRuntimeException("Frame is " + w + "x" + h + ", but the stream is " + width + "x" + height);
+        final ByteBuffer pixels = pixmap.getPixels().duplicate();
+        if(y4m) {
+            // each pixel is converted once, into the Y, Cb, and Cr planes at once
+            final int area = w * h;
+            for (int y = h - 1, p = 0; y >= 0; y--) {
+                pixels.position(y * w << 2);
+                pixels.get(row, 0, row.length);
+                for (int i = 0; i < row.length; i += 4, p++) {
+                    final int a = row[i + 3] & 255,
+                            r = (row[i] & 255) * a / 255,
+                            g = (row[i + 1] & 255) * a / 255,
+                            b = (row[i + 2] & 255) * a / 255;
+                    planes[p] = (byte) ((66 * r + 129 * g + 25 * b + 128 >> 8) + 16);
+                    planes[p + area] = (byte) ((-38 * r - 74 * g + 112 * b + 128 >> 8) + 128);
+                    planes[p + area + area] = (byte) ((112 * r - 94 * g - 18 * b + 128 >> 8) + 128);
+                }
+            }
+            write(FRAME, FRAME.length);
+            write(planes, planes.length);
+        }
+        else {
+            for (int y = h - 1; y >= 0; y--) {
+                pixels.position(y * w << 2);
+                pixels.get(row, 0, row.length);
+                write(row, row.length);
+            }
+        }
+        frames++;
+    }
+
+    private void write(byte[] bytes, int length) {
+        try {
+            out.write(bytes, 0, length);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error writing frame " + frames + " to stream", e);
+        }
+    }
+
+    /**
+     * Sends any buffered frames on to the stream, so a reader can use them before the stream ends.
+     */
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error writing to stream", e);
+        }
+    }
+
+    /**
+     * Flushes and closes the stream, which tells the reader there are no more frames.
+     */
+    @Override
+    public void dispose() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error closing stream", e);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.github.tommyettinger.anim8.FastPNG;
+import com.github.tommyettinger.ds.LongObjectMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes rendered frames to PNG files behind the renderer's back. {@link #write(FileHandle, Pixmap)} copies the frame
+ * into one of a fixed number of pooled Pixmaps and hands it to a pool of encoder threads, each with its own
+ * {@link FastPNG}, so the caller can go on to render the next frame while earlier ones are compressed and written.
+ * When every pooled Pixmap is waiting to be written, write blocks until one is free, so memory stays bounded no
+ * matter how far ahead rendering gets.
+ * <br>
+ * With 0 threads, frames are written immediately on the calling thread, without copying.
+ * <br>
+ * If {@link #dedupe} is true, frames are hashed before they are copied or encoded, and a frame with exactly the same
+ * pixels as one this already wrote is never encoded; its file is made as a hard link to the first file instead.
+ * <br>
+ * If {@link #indexed} is true, each frame with 256 colors or fewer is written as an 8-bit {@link IndexedPNG}, which is
+ * smaller and faster to compress, and the rest are written as RGBA.
+ */
+public class FrameWriter implements Disposable {
+    public final int threads, buffers;
+    private final boolean flipY;
+    private final Encoder png;
+    private final ExecutorService encoders;
+    private final ThreadLocal<Encoder> encoderPng;
+    private final ArrayList<Encoder> encoderPngs = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Pixmap> free = new ConcurrentLinkedQueue<>();
+    private final Semaphore available;
+    private volatile Throwable failure;
+    /**
+     * If true, frames that match an earlier frame pixel-for-pixel (and in size) aren't encoded again. Their files are
+     * made by {@link #finish()}, once the earlier file has surely been written, as hard links to it, or as copies
+     * where the file system can't link.
+     */
+    public boolean dedupe;
+    /**
+     * If true, frames with no more than 256 distinct RGBA colors are written as palette-indexed PNGs, losslessly;
+     * frames with more are still written as RGBA.
+     */
+    public boolean indexed;
+    private final AtomicInteger indexedFrames = new AtomicInteger();
+    /**
+     * Counts frames that were linked instead of encoded, for {@link #dedupe}.
+     */
+    public int duplicates;
+    /**
+     * The first file written for each hash, with the second hash and size to confirm a match.
+     */
+    private static final class Written {
+        final FileHandle file;
+        final long check;
+        final int width, height;
+
+        Written(FileHandle file, long check, int width, int height) {
+            this.file = file;
+            this.check = check;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final LongObjectMap<Written> written = new LongObjectMap<>();
+    private final ArrayList<FileHandle[]> links = new ArrayList<>();
+    private final long[] hash = new long[2];
+
+    /**
+     * One thread's PNG encoders; the indexed one is only made once {@link #indexed} is used.
+     */
+    private final class Encoder implements Disposable {
+        final FastPNG rgba = new FastPNG();
+        IndexedPNG palette;
+
+        Encoder() {
+            rgba.setFlipY(flipY);
+        }
+
+        void write(FileHandle file, Pixmap pixmap) {
+            if(indexed) {
+                if(palette == null) {
+                    palette = new IndexedPNG();
+                    palette.setFlipY(flipY);
+                }
+                if(palette.write(file, pixmap)) {
+                    indexedFrames.incrementAndGet();
+                    return;
+                }
+            }
+            rgba.write(file, pixmap);
+        }
+
+        @Override
+        public void dispose() {
+            rgba.dispose();
+            if(palette != null)
+                palette.dispose();
+        }
+    }
+
+    /**
+     * @param threads how many encoder threads to use; 0 or less writes each frame on the calling thread
+     * @param buffers how many frames can be waiting to be written at once; at least threads are always used
+     * @param flipY passed to {@link FastPNG#setFlipY(boolean)}; SpotVox uses true
+     */
+    public FrameWriter(int threads, int buffers, boolean flipY) {
+        this.threads = Math.max(0, threads);
+        this.buffers = Math.max(this.threads, buffers);
+        this.flipY = flipY;
+        available = new Semaphore(this.buffers);
+        if(this.threads == 0) {
+            png = new Encoder();
+            encoders = null;
+            encoderPng = null;
+            return;
+        }
+        png = null;
+        encoders = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "FrameWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        encoderPng = ThreadLocal.withInitial(() -> {
+            Encoder p = new Encoder();
+            synchronized (encoderPngs) {
+                encoderPngs.add(p);
+            }
+            return p;
+        });
+    }
+
+    /**
+     * Writes pixmap to file as a PNG, either now or soon. The pixmap can be changed as soon as this returns.
+     * @param file where to write; its parent folders are made if needed
+     * @param pixmap an RGBA8888 Pixmap, such as {@link Renderer#pixmap} or {@link Renderer#normalMap}
+     * @throws GdxRuntimeException if an earlier write failed
+     */
+    public void write(FileHandle file, Pixmap pixmap) {
+        checkFailure();
+        if(dedupe && linked(file, pixmap, 0, 0, pixmap.getWidth(), pixmap.getHeight()))
+            return;
+        if(encoders == null) {
+            png.write(file, pixmap);
+            return;
+        }
+        Pixmap copy = pooled(pixmap.getWidth(), pixmap.getHeight(), pixmap.getFormat());
+        ByteBuffer from = pixmap.getPixels().duplicate(), to = copy.getPixels().duplicate();
+        from.clear();
+        to.clear();
+        to.put(from);
+        submit(file, copy);
+    }
+
+    /**
+     * Writes only the given rectangle of pixmap to file as a PNG, either now or soon. The pixmap can be changed as
+     * soon as this returns.
+     * @param file where to write; its parent folders are made if needed
+     * @param pixmap an RGBA8888 Pixmap, such as {@link Renderer#pixmap} or {@link Renderer#normalMap}
+     * @param x the left edge of the rectangle, in Pixmap coordinates
+     * @param y the top edge of the rectangle, in Pixmap coordinates (which is the bottom of the file when flipping)
+     * @param width the width of the rectangle; at least 1
+     * @param height the height of the rectangle; at least 1
+     * @throws GdxRuntimeException if an earlier write failed
+     */
+    public void write(FileHandle file, Pixmap pixmap, int x, int y, int width, int height) {
+        if(x == 0 && y == 0 && width == pixmap.getWidth() && height == pixmap.getHeight()) {
+            write(file, pixmap);
+            return;
+        }
+        checkFailure();
+        if(dedupe && linked(file, pixmap, x, y, width, height))
+            return;
+        if(encoders == null) {
+            Pixmap crop = SpriteSheet.crop(pixmap, x, y, width, height);
+            try {
+                png.write(file, crop);
+            } finally {
+                crop.dispose();
+            }
+            return;
+        }
+        Pixmap copy = pooled(width, height, pixmap.getFormat());
+        copy.setBlending(Pixmap.Blending.None);
+        copy.drawPixmap(pixmap, x, y, width, height, 0, 0, width, height);
+        submit(file, copy);
+    }
+
+    /**
+     * Counts frames written as indexed PNGs so far, for {@link #indexed}; call {@link #finish()} first to count all of
+     * them.
+     */
+    public int indexedFrames() {
+        return indexedFrames.get();
+    }
+
+    /**
+     * Hashes a rectangle of pixmap; if the same pixels were written before, remembers to link file to that frame's
+     * file and returns true. Otherwise, remembers file as where these pixels are and returns false.
+     */
+    private boolean linked(FileHandle file, Pixmap pixmap, int x, int y, int width, int height) {
+        hash(pixmap, x, y, width, height, hash);
+        final Written first = written.get(hash[0]);
+        if(first == null) {
+            written.put(hash[0], new Written(file, hash[1], width, height));
+            return false;
+        }
+        if(first.check != hash[1] || first.width != width || first.height != height)
+            return false;
+        links.add(new FileHandle[]{file, first.file});
+        duplicates++;
+        return true;
+    }
+
+    /**
+     * Gets two unrelated 64-bit hashes of the pixels in a rectangle of an RGBA8888 pixmap and of the rectangle's size,
+     * and puts them in out. Frames with both hashes equal are treated as identical.
+     */
+    static void hash(Pixmap pixmap, int x, int y, int width, int height, long[] out) {
+        final ByteBuffer pixels = pixmap.getPixels();
+        final int stride = pixmap.getWidth() << 2;
+        long a = 0x9E3779B97F4A7C15L ^ width * 0xD1B54A32D192ED03L ^ height,
+                b = 0xC6BC279692B5C323L + width * 0xF1357AEA2E62A9C5L + height;
+        for (int row = y; row < y + height; row++) {
+            int i = row * stride + (x << 2);
+            final int end = i + (width << 2);
+            for (; i < end; i += 8) {
+                final long v = i + 8 <= end ? pixels.getLong(i) : pixels.getInt(i) & 0xFFFFFFFFL;
+                a = (a ^ v) * 0xD1B54A32D192ED03L;
+                a ^= a >>> 29;
+                b = (b + v) * 0xE95E1DD17D35800DL;
+                b ^= b >>> 32;
+            }
+        }
+        out[0] = a ^ a >>> 31;
+        out[1] = b ^ b >>> 27;
+    }
+
+    /**
+     * Waits for a free buffer and gets a pooled Pixmap of the given size, making a new one if the pooled one differs.
+     */
+    private Pixmap pooled(int width, int height, Pixmap.Format format) {
+        available.acquireUninterruptibly();
+        Pixmap copy = free.poll();
+        if(copy != null && (copy.getWidth() != width || copy.getHeight() != height || copy.getFormat() != format)) {
+            copy.dispose();
+            copy = null;
+        }
+        if(copy == null)
+            copy = new Pixmap(width, height, format);
+        return copy;
+    }
+
+    private void submit(FileHandle file, Pixmap frame) {
+        encoders.execute(() -> {
+            try {
+                if(failure == null)
+                    encoderPng.get().write(file, frame);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                free.offer(frame);
+                available.release();
+            }
+        });
+    }
+
+    /**
+     * Waits until every frame given to {@link #write(FileHandle, Pixmap)} so far has been written, then makes the
+     * files of any duplicate frames.
+     * @throws GdxRuntimeException if any write failed
+     */
+    public void finish() {
+        if(encoders != null) {
+            available.acquireUninterruptibly(buffers);
+            available.release(buffers);
+        }
+        checkFailure();
+        for (FileHandle[] link : links) {
+            final Path to = link[0].file().toPath(), from = link[1].file().toPath();
+            link[0].parent().mkdirs();
+            try {
+                Files.deleteIfExists(to);
+                try {
+                    Files.createLink(to, from);
+                } catch (IOException | UnsupportedOperationException e) {
+                    Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                throw new GdxRuntimeException("Error linking " + link[0] + " to " + link[1], e);
+            }
+        }
+        links.clear();
+    }
+
+    private void checkFailure() {
+        final Throwable t = failure;
+        if(t != null)
+            throw new GdxRuntimeException("Error writing PNG", t);
+    }
+
+    /**
+     * Waits for every frame to be written, then stops the encoder threads and frees the pooled Pixmaps.
+     */
+    @Override
+    public void dispose() {
+        try {
+            finish();
+        } finally {
+            if(encoders != null) {
+                encoders.shutdown();
+                Pixmap p;
+                while ((p = free.poll()) != null) {
+                    p.dispose();
+                }
+                synchronized (encoderPngs) {
+                    for (Encoder e : encoderPngs) {
+                        e.dispose();
+                    }
+                    encoderPngs.clear();
+                }
+            }
+            else
+                png.dispose();
+        }
+    }
+}
@@ -33,6 +33,15 @@ public class GaussianBlur {
         this.max = max;
     }
 
+    /**
+     * How many cells away from a cell, in each direction, can change it in {@link #filter(float[], int, int)} with
+     * the given sigma. The filter wraps around at the edges, so cells this close to one edge are changed by cells
+     * near the opposite edge.
+     */
+    public static int reach(double sigma) {
+        return (int) Math.ceil(sigma * sigma * 3.525509352823274);
+    }
+
     public float[] filter(final float[] levelData, final int width, final int height) {
         if(sigma == 0.0) return levelData;
         double sigma = this.sigma * this.sigma;
@@ -0,0 +1,201 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.github.tommyettinger.ds.IntIntMap;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes RGBA8888 Pixmaps as palette-indexed (8-bit) PNG files, without losing anything: every distinct RGBA value in
+ * the Pixmap gets its own palette entry, with its alpha in a tRNS chunk, so even fully transparent pixels keep their
+ * RGB (which normal maps use). Renders only use the colors their model's palette can be shaded to, so frames often
+ * fit; when a Pixmap has more than 256 distinct colors, {@link #write(FileHandle, Pixmap)} writes nothing and returns
+ * false, so the caller can write it as RGBA instead, such as with {@link com.github.tommyettinger.anim8.FastPNG}.
+ * <br>
+ * Like FastPNG, this is not thread-safe; use one per thread.
+ */
+public class IndexedPNG implements Disposable {
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int IHDR = 0x49484452, PLTE = 0x504C5445, TRNS = 0x74524E53, IDAT = 0x49444154,
+            IEND = 0x49454E44;
+    private final Deflater deflater;
+    private final IntIntMap indices = new IntIntMap(256);
+    private final int[] colors = new int[256];
+    private final byte[] order = new byte[256];
+    private final int[] sorted = new int[256];
+    private byte[] rows = new byte[0];
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream(1 << 12);
+    private final CRC32 crc = new CRC32();
+    private boolean flipY = true;
+
+    /**
+     * Uses compression level 2, the same as {@link com.github.tommyettinger.anim8.FastPNG}.
+     */
+    public IndexedPNG() {
+        this(2);
+    }
+
+    /**
+     * @param compression a {@link Deflater} level, from 0 to 9
+     */
+    public IndexedPNG(int compression) {
+        deflater = new Deflater(compression);
+    }
+
+    /**
+     * If true, which is the default, the last row of the Pixmap is the first row of the file, as with
+     * {@link com.github.tommyettinger.anim8.FastPNG#setFlipY(boolean)}.
+     */
+    public void setFlipY(boolean flipY) {
+        this.flipY = flipY;
+    }
+
+    public void setCompression(int compression) {
+        deflater.setLevel(compression);
+    }
+
+    /**
+     * Writes pixmap to file as an indexed PNG, if it has no more than 256 distinct colors.
+     * @param file where to write; its parent folders are made if needed
+     * @param pixmap an RGBA8888 Pixmap
+     * @return true if the file was written, or false if pixmap has too many colors, in which case file is untouched
+     */
+    public boolean write(FileHandle file, Pixmap pixmap) {
+        final int count = index(pixmap);
+        if(count < 0)
+            return false;
+        try (OutputStream out = new BufferedOutputStream(file.write(false))) {
+            write(out, pixmap.getWidth(), pixmap.getHeight(), count);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error writing PNG: " + file, e);
+        }
+        return true;
+    }
+
+    /**
+     * Fills {@link #rows} with a filter byte and the palette index of each pixel for every row, in file order, and
+     * {@link #colors} with the palette, with every color that isn't opaque first, so tRNS can stop at the last of them.
+     * @return how many colors were used, or -1 if there were more than 256
+     */
+    private int index(Pixmap pixmap) {
+        final ByteBuffer pixels = pixmap.getPixels().duplicate().order(ByteOrder.BIG_ENDIAN);
+        final int w = pixmap.getWidth(), h = pixmap.getHeight(), rowLength = w + 1;
+        if(rows.length < rowLength * h)
+            rows = new byte[rowLength * h];
+        indices.clear();
+        int count = 0, last = 0, lastIndex = -1;
+        for (int y = 0; y < h; y++) {
+            final int start = (flipY ? h - 1 - y : y) * w << 2;
+            int r = y * rowLength;
+            rows[r++] = 0;
+            for (int x = 0, i = start; x < w; x++, i += 4, r++) {
+                final int color = pixels.getInt(i);
+                if(color != last || lastIndex < 0) {
+                    lastIndex = indices.getOrDefault(color, -1);
+                    if(lastIndex < 0) {
+                        if(count == 256)
+                            return -1;
+                        colors[count] = color;
+                        indices.put(color, lastIndex = count++);
+                    }
+                    last = color;
+                }
+                rows[r] = (byte) lastIndex;
+            }
+        }
+        // put the colors that aren't opaque first, keeping the rest in the order they were found
+        int front = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                if(((colors[i] & 255) == 255) == (pass == 1))
+                    order[i] = (byte) front++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            sorted[order[i] & 255] = colors[i];
+        }
+        System.arraycopy(sorted, 0, colors, 0, count);
+        for (int y = 0, r = 0; y < h; y++) {
+            r++;
+            for (int x = 0; x < w; x++, r++) {
+                rows[r] = order[rows[r] & 255];
+            }
+        }
+        return count;
+    }
+
+    private void write(OutputStream output, int width, int height, int count) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.write(SIGNATURE);
+
+        data.reset();
+        DataOutputStream chunk = new DataOutputStream(data);
+        chunk.writeInt(width);
+        chunk.writeInt(height);
+        chunk.writeByte(8); // bit depth
+        chunk.writeByte(3); // color type: indexed
+        chunk.writeByte(0); // compression
+        chunk.writeByte(0); // filter
+        chunk.writeByte(0); // interlace
+        endChunk(out, IHDR);
+
+        int transparent = 0;
+        for (int i = 0; i < count; i++) {
+            final int c = colors[i];
+            chunk.writeByte(c >>> 24);
+            chunk.writeByte(c >>> 16);
+            chunk.writeByte(c >>> 8);
+            if((c & 255) != 255) transparent = i + 1;
+        }
+        endChunk(out, PLTE);
+
+        if(transparent > 0) {
+            for (int i = 0; i < transparent; i++) {
+                chunk.writeByte(colors[i]);
+            }
+            endChunk(out, TRNS);
+        }
+
+        deflater.reset();
+        DeflaterOutputStream deflated = new DeflaterOutputStream(data, deflater, 1 << 12);
+        deflated.write(rows, 0, (width + 1) * height);
+        deflated.finish();
+        endChunk(out, IDAT);
+
+        endChunk(out, IEND);
+        out.flush();
+    }
+
+    /**
+     * Writes what has been put in {@link #data} as a chunk of the given type, then empties data.
+     */
+    private void endChunk(DataOutputStream out, int type) throws IOException {
+        out.writeInt(data.size());
+        crc.reset();
+        final byte[] typeBytes = {(byte) (type >>> 24), (byte) (type >>> 16), (byte) (type >>> 8), (byte) type};
+        out.write(typeBytes);
+        crc.update(typeBytes);
+        final byte[] bytes = data.toByteArray();
+        out.write(bytes);
+        crc.update(bytes);
+        out.writeInt((int) crc.getValue());
+        data.reset();
+    }
+
+    @Override
+    public void dispose() {
+        deflater.end();
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.tommyettinger;
+
+import com.github.tommyettinger.ds.IntObjectMap;
+
+import java.util.Arrays;
+
+/**
+ * A bit-packed record of which cells in a {@code byte[][][]} voxel model are filled, with one bit per cell. Each
+ * (x, y) column is stored as {@link #words} consecutive longs, with bit {@code z & 63} of word {@code z >>> 6} for
+ * the cell at z. Checking a cell's neighbors along x or y is a matter of reading the neighboring column, and along z
+ * is a shift by one bit, so whole groups of 64 cells can be tested for being on the surface or inside at once.
+ * <br>
+ * Any bits past {@link #sizeZ} in the last word of a column are always 0.
+ */
+public class OccupancyMask {
+    public final int sizeX, sizeY, sizeZ, words;
+    public final long[] bits;
+
+    public OccupancyMask(int sizeX, int sizeY, int sizeZ) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.words = sizeZ + 63 >>> 6;
+        this.bits = new long[sizeX * sizeY * words];
+    }
+
+    /**
+     * Gets which palette indices use a material that is fully see-through, meaning its alpha trait is 1 or more.
+     * Voxels with these colors don't hide their neighbors, so they count as empty for surface checks.
+     * @param materials a map from palette index to material, such as {@link com.github.tommyettinger.io.VoxIOExtended#lastMaterials}
+     * @return a 256-element boolean array, true where a palette index is see-through
+     */
+    public static boolean[] clearColors(IntObjectMap<VoxMaterial> materials) {
+        boolean[] clear = new boolean[256];
+        for (int i = 1; i < 256; i++) {
+            VoxMaterial m = materials.get(i);
+            clear[i] = m != null && m.getTrait(VoxMaterial.MaterialTrait._alpha) >= 1f;
+        }
+        return clear;
+    }
+
+    /**
+     * Gets the index in {@link #bits} of the first word for the column at x, y.
+     */
+    public int index(int x, int y) {
+        return (x * sizeY + y) * words;
+    }
+
+    public boolean get(int x, int y, int z) {
+        return (bits[index(x, y) + (z >>> 6)] & 1L << z) != 0L;
+    }
+
+    public void set(int x, int y, int z) {
+        bits[index(x, y) + (z >>> 6)] |= 1L << z;
+    }
+
+    public void clear() {
+        Arrays.fill(bits, 0L);
+    }
+
+    public int count() {
+        int c = 0;
+        for (long b : bits) {
+            c += Long.bitCount(b);
+        }
+        return c;
+    }
+
+    /**
+     * Sets this to hold exactly the non-zero cells of voxels, which must be the same size as this mask.
+     * @param voxels a 3D byte array that will not be modified
+     * @param clear a 256-element array as produced by {@link #clearColors(IntObjectMap)}, or null if no color is clear
+     * @return true if no non-zero voxel has a clear color, so this is also a mask of which cells are opaque
+     */
+    public boolean fill(byte[][][] voxels, boolean[] clear) {
+        boolean opaque = true;
+        for (int x = 0, i = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++, i += words) {
+                final byte[] column = voxels[x][y];
+                for (int w = 0, z = 0; w < words; w++) {
+                    long word = 0L;
+                    for (final int end = Math.min(z + 64, sizeZ); z < end; z++) {
+                        final int v = column[z] & 255;
+                        if(v != 0) {
+                            word |= 1L << z;
+                            if(clear != null && clear[v]) opaque = false;
+                        }
+                    }
+                    bits[i + w] = word;
+                }
+            }
+        }
+        return opaque;
+    }
+
+    /**
+     * Finds the cells that are filled and have all six neighbors filled; cells on the edge of the grid are never
+     * inside. This matches where {@link Tools3D#soakInPlace(byte[][][])} considers a voxel to be hidden, as long as no
+     * voxel has a clear color.
+     * @param into a mask the same size as this to write into, or null to create one
+     * @return into, or a new mask, holding the inside cells
+     */
+    public OccupancyMask interior(OccupancyMask into) {
+        if(into == null) into = new OccupancyMask(sizeX, sizeY, sizeZ);
+        final long[] out = into.bits;
+        final int rowX = sizeY * words;
+        for (int x = 0, i = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++, i += words) {
+                if(x == 0 || y == 0 || x == sizeX - 1 || y == sizeY - 1) {
+                    Arrays.fill(out, i, i + words, 0L);
+                    continue;
+                }
+                for (int w = 0; w < words; w++) {
+                    final long b = bits[i + w];
+                    final long up = b >>> 1 | (w + 1 < words ? bits[i + w + 1] << 63 : 0L);
+                    final long down = b << 1 | (w > 0 ? bits[i + w - 1] >>> 63 : 0L);
+                    out[i + w] = b & up & down & bits[i + w - rowX] & bits[i + w + rowX]
+                            & bits[i + w - words] & bits[i + w + words];
+                }
+            }
+        }
+        return into;
+    }
+
+    /**
+     * Finds the cells that are filled but have at least one empty neighbor, or are on the edge of the grid.
+     * @param into a mask the same size as this to write into, or null to create one; may be this mask
+     * @return into, or a new mask, holding the surface cells
+     */
+    public OccupancyMask surface(OccupancyMask into) {
+        OccupancyMask inside = interior(null);
+        if(into == null) into = new OccupancyMask(sizeX, sizeY, sizeZ);
+        final long[] out = into.bits, in = inside.bits;
+        for (int i = 0; i < bits.length; i++) {
+            out[i] = bits[i] & ~in[i];
+        }
+        return into;
+    }
+}
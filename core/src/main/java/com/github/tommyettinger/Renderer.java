@@ -22,9 +22,65 @@ public class Renderer {
     public Pixmap pixmap;
     public int[][] depths;
     public int[][] voxels;
+    /**
+     * The palette index drawn in each cell, or 0 where nothing was drawn. The color, material, and edge color of a
+     * cell are all looked up from this when {@link #blit(float, float, float)} needs them.
+     */
+    public byte[][] colorIndices;
+    public float[][] shadeX, shadeZ;
+    /**
+     * How many steps of {@link #lightLevels} make a lightness of 1.0; with 20 fractional bits, each light a cell gets
+     * is rounded by less than a millionth, and an int still holds up to 2048 before it saturates.
+     */
+    public static final int LIGHT_ONE = 1 << 20;
+    /**
+     * How many steps of {@link #emitLevels} make {@code 0.3f * lightPower}, the most emitted light a cell can get.
+     */
+    public static final int EMIT_STEPS = Short.MAX_VALUE;
+    /**
+     * The level {@link #lightLevels} holds where nothing was drawn, a lightness of -1.0.
+     */
+    public static final int NO_LIGHT = -LIGHT_ONE;
+    /**
+     * The lightness of each cell, in steps of {@code 1.0 / LIGHT_ONE}: the palette lightness of the voxel drawn there,
+     * plus any light spread to it, or {@link #NO_LIGHT} where nothing was drawn. Adding light saturates instead of
+     * overflowing, so an {@link #expand} of 0, which spreads infinite light, still makes a lightness of 1.0.
+     */
+    public int[][] lightLevels;
+    /**
+     * Emitted light gathered in each cell, in steps of {@code 0.3f * lightPower / EMIT_STEPS}, up to
+     * {@link #EMIT_STEPS}.
+     */
+    public short[][] emitLevels;
+    /**
+     * The edge color, material, and Oklab channels of the voxel drawn in each cell, as splat stored them before it
+     * stored {@link #colorIndices}, and the emitted light blit used to gather in {@link #midShading}. These hold what
+     * they always did between splatting and {@link #blit(float, float, float)}, which clears them; light is gathered in
+     * {@link #lightLevels} and {@link #emitLevels} instead, so midShading stays 0. They are null unless
+     * {@link #legacyPlanes} was true when {@link #init()} was called.
+     * @deprecated look these up from {@link #colorIndices} with {@link #paletteL}, {@link #paletteA},
+     * {@link #paletteB}, and {@link #materialMap}; the light is in {@link #lightLevels} and {@link #emitLevels}. These
+     * will be removed in the release after 0.0.9.
+     */
+    @Deprecated(since = "0.0.9", forRemoval = true)
     public int[][] outlines;
+    /**
+     * @deprecated see {@link #outlines}
+     */
+    @Deprecated(since = "0.0.9", forRemoval = true)
     public VoxMaterial[][] materials;
-    public float[][] shadeX, shadeZ, colorL, colorA, colorB, midShading;
+    /**
+     * @deprecated see {@link #outlines}
+     */
+    @Deprecated(since = "0.0.9", forRemoval = true)
+    public float[][] colorL, colorA, colorB, midShading;
+    /**
+     * If true when {@link #init()} is called, this also allocates and fills the deprecated {@link #outlines},
+     * {@link #materials}, {@link #colorL}, {@link #colorA}, {@link #colorB}, and {@link #midShading}, for code that
+     * still reads them; this costs 20 more bytes per cell. This will be removed along with them.
+     */
+    @Deprecated(since = "0.0.9", forRemoval = true)
+    public boolean legacyPlanes = false;
     public int[] palette;
     public float[] paletteL, paletteA, paletteB;
     public int outline = 2;
@@ -37,10 +93,47 @@ public class Renderer {
     public IntObjectMap<VoxMaterial> materialMap;
 
     public float distortHXY = 2, distortVXY = 1, distortVZ = 3;
+    /**
+     * If true, {@link #splatOnly(byte[][][], float, float, float, float, float, float)} projects voxels with fixed-point
+     * integer math when the angles aren't all quarter-turns, stepping along each row of the model by adding constants
+     * instead of multiplying floats for every voxel. The output is exactly what the float path gives; see
+     * {@link #splatFixedPoint(byte[][][], float, float, float, float, float, float, float, float, float, float, float, float)}.
+     */
+    public boolean fixedPoint = false;
 
     public Pixmap normalMap;
     public boolean computeNormals;
     public double blurSigma = 0.9;
+    /**
+     * If non-null, per-voxel ambient light for the model being drawn, as made by
+     * {@link Tools3D#ambientOcclusion(byte[][][], int, byte[][][])}, indexed the same way as the model. Then
+     * {@link #blit(float, float, float)} lights each pixel from its own voxel's ambient light and whether it faces the
+     * light, instead of spreading light from every lit pixel over its neighbors, which is much faster when
+     * {@link #expand} is large. This gives a somewhat different look.
+     */
+    public byte[][][] ambient;
+    /**
+     * If non-null, a per-voxel normal for the model being drawn, as made by
+     * {@link Tools3D#surfaceNormals(byte[][][], int, short[][][])} and indexed the same way as the model. Then, when
+     * {@link #computeNormals} is true, {@link #blit(float, float, float)} builds {@link #normalMap} by turning each
+     * visible voxel's normal with the frame's rotation, instead of filtering and blurring the depth buffer.
+     */
+    public short[][][] voxelNormals;
+    private final float[] normal = new float[3];
+    /**
+     * Where this renderer's canvas starts within the full canvas for {@link #size}, in cells; always a multiple of
+     * {@code 1 << shrink}, so each pixmap pixel is also a pixel of the full-size pixmap. Set by
+     * {@link #fit(int[], float[], float, float)}; 0 when the full canvas is used.
+     */
+    public int originX, originY;
+    /**
+     * If greater than 0 when {@link #init()} is called, the width and height of the canvas in cells, instead of
+     * {@link #fullWidth()} and {@link #fullHeight()}. Set by {@link #fit(int[], float[], float, float)}.
+     */
+    public int canvasWidth, canvasHeight;
+    private int[][] sampledOutlines, sampledDepths;
+    private final VoxMaterial[] colorMaterials = new VoxMaterial[256];
+    private final int[] edgeColors = new int[256];
     public GaussianBlur blur;
     public float[][] normals;
     private final Vector3 out = new Vector3();
@@ -52,8 +145,85 @@ public class Renderer {
         this.size = size;
     }
 
+    /**
+     * The width in cells of a canvas that holds any model of {@link #size} at any angle.
+     */
+    public int fullWidth() {
+        return (int)Math.ceil(size * distortHXY * 2 + 4);
+    }
+
+    /**
+     * The height in cells of a canvas that holds any model of {@link #size} at any angle.
+     */
+    public int fullHeight() {
+        return (int)Math.ceil(size * (distortVZ + distortVXY * 2) + 4);
+    }
+
+    /**
+     * Shrinks the canvas to fit only what can be drawn of the given box of voxels at the given angles, instead of the
+     * worst case for any model of {@link #size} at any angle; call this before {@link #init()}. This finds where the
+     * corners of the box are projected at each angle, the same way
+     * {@link #splatOnly(byte[][][], float, float, float, float, float, float)} projects them without translation, and
+     * sets {@link #originX}, {@link #originY}, {@link #canvasWidth}, and {@link #canvasHeight} to cover all of them with
+     * a pixel to spare on each side. Each frame then matches the same part of the full-size frame, as long as only
+     * voxels in the box are drawn, and only at these angles. If {@link #computeNormals} is true, set it and
+     * {@link #blurSigma} first; normal maps made from depth spread and blur past the model, so more room is left for
+     * them, which keeps their blur from wrapping around the canvas. (The full-size canvas leaves no such room, so
+     * blurred normals within a few pixels of its edge can differ slightly from fitted ones.)
+     * @param bounds the box holding every voxel that will be drawn, as {minX, minY, minZ, maxX, maxY, maxZ}, such as
+     *               from {@link Tools3D#tightBounds(byte[][][], int[])}
+     * @param yaws every yaw, in turns, that will be drawn
+     * @param pitch the pitch, in turns, used for every frame
+     * @param roll the roll, in turns, used for every frame
+     * @return this, for chaining
+     */
+    public Renderer fit(int[] bounds, float[] yaws, float pitch, float roll) {
+        final int fullW = fullWidth(), fullH = fullHeight(), step = 1 << shrink;
+        if(bounds[3] < bounds[0] || yaws.length == 0) {
+            originX = originY = 0;
+            canvasWidth = canvasHeight = step;
+            return this;
+        }
+        final float hs = size * 0.5f;
+        final float cPitch = cosTurns(pitch), sPitch = sinTurns(pitch);
+        final float cRoll = cosTurns(roll), sRoll = sinTurns(roll);
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY,
+                maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (float yaw : yaws) {
+            final float cYaw = cosTurns(yaw), sYaw = sinTurns(yaw);
+            final float x_x = cYaw * cPitch, y_x = -sYaw * cPitch, z_x = -sPitch;
+            final float x_y = cRoll*sYaw-sRoll*sPitch*cYaw, y_y = sRoll*sPitch*sYaw+cRoll*cYaw, z_y =-sRoll*cPitch;
+            final float x_z = cRoll*sPitch*cYaw+sRoll*sYaw, y_z = sRoll*cYaw-cRoll*sPitch*sYaw, z_z = cPitch * cRoll;
+            for (int corner = 0; corner < 8; corner++) {
+                final float ox = bounds[(corner & 1) * 3] - hs, oy = bounds[(corner >>> 1 & 1) * 3 + 1] - hs,
+                        oz = bounds[(corner >>> 2) * 3 + 2] - hs;
+                final float xPos = ox * x_x + oy * y_x + oz * z_x + size,
+                        yPos = ox * x_y + oy * y_y + oz * z_y + size,
+                        zPos = ox * x_z + oy * y_z + oz * z_z + hs;
+                final float sx = (size + yPos - xPos) * distortHXY + 1,
+                        sy = zPos * distortVZ + size * ((distortVXY) * 3) - distortVXY * (xPos + yPos) + 1;
+                minX = Math.min(minX, sx);
+                maxX = Math.max(maxX, sx);
+                minY = Math.min(minY, sy);
+                maxY = Math.max(maxY, sy);
+            }
+        }
+        // scharr() spreads each normal 4 pixels, and then the blur reaches further
+        final int margin = 1 + (computeNormals ? 4 + (blurSigma > 0.0 ? GaussianBlur.reach(blurSigma) : 0) : 0);
+        // each voxel covers 4 cells from where it lands, and one more cell on each side covers rounding
+        final int x0 = Math.max(0, ((int)Math.floor(minX) - 1 >> shrink) - margin) << shrink,
+                y0 = Math.max(0, ((int)Math.floor(minY) - 1 >> shrink) - margin) << shrink,
+                x1 = Math.min(fullW, ((int)Math.ceil(maxX) + 5 >> shrink) + 1 + margin << shrink),
+                y1 = Math.min(fullH, ((int)Math.ceil(maxY) + 5 >> shrink) + 1 + margin << shrink);
+        originX = Math.min(x0, fullW - step & -step);
+        originY = Math.min(y0, fullH - step & -step);
+        canvasWidth = Math.max(step, x1 - originX);
+        canvasHeight = Math.max(step, y1 - originY);
+        return this;
+    }
+
     public void init(){
-        final int w = (int)Math.ceil(size * distortHXY * 2 + 4), h = (int)Math.ceil(size * (distortVZ + distortVXY * 2) + 4);
+        final int w = canvasWidth > 0 ? canvasWidth : fullWidth(), h = canvasHeight > 0 ? canvasHeight : fullHeight();
         pixmap = new Pixmap(w>>>shrink, h>>>shrink, Pixmap.Format.RGBA8888);
         if(computeNormals)
         {
@@ -64,16 +234,27 @@ public class Renderer {
             else
                 blur = null;
         }
-        outlines = new int[w][h];
         depths =   new int[w][h];
-        materials = new VoxMaterial[w][h];
         voxels = fill(-1, w, h);
+        colorIndices = new byte[w][h];
         shadeX = fill(-1f, size * 4, size * 4);
         shadeZ = fill(-1f, size * 4, size * 4);
-        colorL = fill(-1f, w, h);
-        colorA = fill(-1f, w, h);
-        colorB = fill(-1f, w, h);
-        midShading = fill(0f, w, h);
+        sampledOutlines = new int[(w - 1 >>> shrink) + 1][(h - 1 >>> shrink) + 1];
+        sampledDepths = new int[(w - 1 >>> shrink) + 1][(h - 1 >>> shrink) + 1];
+        lightLevels = fill(NO_LIGHT, w, h);
+        emitLevels = new short[w][h];
+        if(legacyPlanes) {
+            outlines = new int[w][h];
+            materials = new VoxMaterial[w][h];
+            colorL = fill(-1f, w, h);
+            colorA = fill(-1f, w, h);
+            colorB = fill(-1f, w, h);
+            midShading = fill(0f, w, h);
+        } else {
+            outlines = null;
+            materials = null;
+            colorL = colorA = colorB = midShading = null;
+        }
     }
     public static float limitToGamut(float L, float A, float B, float alpha) {
         L = Math.min(Math.max(L, 0f), 1f);
@@ -123,6 +304,51 @@ public class Renderer {
         return TrigTools.cosSmootherTurns(turns);
     }
 
+    /**
+     * If turns is an exact multiple of a quarter-turn, gets how many quarter-turns it is, from 0 to 3; otherwise -1.
+     * Multiplying by 4 is exact for floats, so this never mistakes a nearby angle for a quarter-turn.
+     * @param turns an angle in turns
+     * @return 0, 1, 2, or 3 for an exact quarter-turn, or -1 for any other angle
+     */
+    public static int quarterTurns(float turns) {
+        final float q = turns * 4f;
+        if(q != q || Math.abs(q) >= 0x1p24f || q != (float) Math.floor(q))
+            return -1;
+        return (int) q & 3;
+    }
+
+    /**
+     * Like {@link #cos_(float)}, but returns exactly 1, 0, or -1 for quarter-turns, so voxels rotated by a multiple of
+     * 90 degrees land exactly on the grid.
+     * @param turns an angle in turns
+     * @return the cosine of turns
+     */
+    public static float cosTurns(float turns) {
+        switch (quarterTurns(turns)) {
+            case 0: return 1f;
+            case 2: return -1f;
+            case 1:
+            case 3: return 0f;
+            default: return cos_(turns);
+        }
+    }
+
+    /**
+     * Like {@link #sin_(float)}, but returns exactly 1, 0, or -1 for quarter-turns, so voxels rotated by a multiple of
+     * 90 degrees land exactly on the grid.
+     * @param turns an angle in turns
+     * @return the sine of turns
+     */
+    public static float sinTurns(float turns) {
+        switch (quarterTurns(turns)) {
+            case 1: return 1f;
+            case 3: return -1f;
+            case 0:
+            case 2: return 0f;
+            default: return sin_(turns);
+        }
+    }
+
 //    public static float sin_(float turns)
 //    {
 //        turns *= 4f;
@@ -157,7 +383,7 @@ public class Renderer {
      * @param y y position in depths
      */
     public void sobel(int x, int y) {
-        if(colorL[x][y] == -1) return;
+        if(lightLevels[x][y] == NO_LIGHT) return;
         int[][] data = this.depths;
         float maxDepth = 1.5f * (0.5f + (size + size) * distortHXY + size * distortVZ);
 //        float maxDepth = size;
@@ -269,7 +495,7 @@ public class Renderer {
      */
     public void scharr(int x, int y) {
         // if there is nothing here, don't bother computing anything.
-        if(colorL[x][y] == -1) return;
+        if(lightLevels[x][y] == NO_LIGHT) return;
         int[][] data = this.depths;
         // for other usage, this calculation will have to be different.
         float maxDepth = 1.5f * (0.5f + (size + size) * distortHXY + size * distortVZ);
@@ -364,30 +590,40 @@ public class Renderer {
                 || xPos >= size * 2 || yPos >= size * 2 || zPos >= size * 2)
             return;
         final int 
-                xx = (int)(0.5f + Math.max(0, (size + yPos - xPos) * distortHXY + 1)),
-                yy = (int)(0.5f + Math.max(0, (zPos * distortVZ + size * ((distortVXY) * 3) - distortVXY * (xPos + yPos)) + 1)),
+                xx = (int)(0.5f + Math.max(0, (size + yPos - xPos) * distortHXY + 1)) - originX,
+                yy = (int)(0.5f + Math.max(0, (zPos * distortVZ + size * ((distortVXY) * 3) - distortVXY * (xPos + yPos)) + 1)) - originY,
                 depth = (int)(0.5f + (xPos + yPos) * distortHXY + zPos * distortVZ);
+        final boolean drawn = splatPixels(xx, yy, depth, vx, vy, vz, voxel);
+        final float hs = size * 0.5f;
+        if(xPos < -hs || yPos < -hs || zPos < -hs || xPos + hs > shadeZ.length || yPos + hs > shadeZ[0].length || zPos + hs > shadeX[0].length)
+            System.out.println(xPos + ", " + yPos + ", " + zPos + " is out of bounds");
+        else if(drawn) {
+            shadeZ[(int) (hs + xPos)][(int) (hs + yPos)] = Math.max(shadeZ[(int) (hs + xPos)][(int) (hs + yPos)], (hs + zPos));
+            shadeX[(int) (hs + yPos)][(int) (hs + zPos)] = Math.max(shadeX[(int) (hs + yPos)][(int) (hs + zPos)], (hs + xPos));
+        }
+    }
+    
+    /**
+     * Draws the 4x4 block of pixels for one voxel, given its already-projected screen position and depth, wherever it
+     * is in front of what was drawn there before.
+     * @return true if any pixel was drawn
+     */
+    private boolean splatPixels(int xx, int yy, int depth, int vx, int vy, int vz, byte voxel) {
         boolean drawn = false;
         final VoxMaterial m = materialMap.get(voxel & 255);
 //        if(Tools3D.randomizePointRare(vx, vy, vz, frame) < m.getTrait(VoxMaterial.MaterialTrait._metal))
 //            return;
-        final float emit = m.getTrait(VoxMaterial.MaterialTrait._emit) * 0.75f;
         final float alpha = m.getTrait(VoxMaterial.MaterialTrait._alpha);
-        final float hs = size * 0.5f;
-        for (int x = 0, ax = xx; x < 4 && ax < depths.length; x++, ax++) {
-            for (int y = 0, ay = yy; y < 4 && ay < depths[0].length; y++, ay++) {
-                if ((alpha < 0.5f) && (depth > depths[ax][ay] || (depth == depths[ax][ay] && colorL[ax][ay] < paletteL[voxel & 255]))) {
+        final int level = level(paletteL[voxel & 255]);
+        for (int x = Math.max(0, -xx), ax = xx + x; x < 4 && ax < depths.length; x++, ax++) {
+            for (int y = Math.max(0, -yy), ay = yy + y; y < 4 && ay < depths[0].length; y++, ay++) {
+                if ((alpha < 0.5f) && (depth > depths[ax][ay] || (depth == depths[ax][ay] && lightLevels[ax][ay] < level))) {
                     drawn = true;
-                    colorL[ax][ay] = paletteL[voxel & 255];
-                    colorA[ax][ay] = paletteA[voxel & 255];
-                    colorB[ax][ay] = paletteB[voxel & 255];
+                    lightLevels[ax][ay] = level;
+                    if(outlines != null)
+                        splatLegacy(ax, ay, voxel, m);
+                    colorIndices[ax][ay] = voxel;
                     depths[ax][ay] = depth;
-                    materials[ax][ay] = m;
-                    outlines[ax][ay] = ColorTools.toRGBA8888(limitToGamut(paletteL[voxel & 255] * (0.8f + emit) + baseLight, (paletteA[voxel & 255] - 0.5f) * neutral + 0.5f, (paletteB[voxel & 255] - 0.5f) * neutral + 0.5f, 1f));
-//                                Coloring.darken(palette[voxel & 255], 0.375f - emit);
-//                                Coloring.adjust(palette[voxel & 255], 0.625f + emit, neutral);
-//                    else
-//                        outlines[ax][ay] = palette[voxel & 255];
                     voxels[ax][ay] = vx | vy << 10 | vz << 20;
 //                    for (int xp = (int)xPos; xp < xPos + 0.5f; xp++) {
 //                        for (int yp = (int) yPos; yp < yPos + 0.5f; yp++) {
@@ -399,29 +635,52 @@ public class Renderer {
                 }
             }
         }
-        if(xPos < -hs || yPos < -hs || zPos < -hs || xPos + hs > shadeZ.length || yPos + hs > shadeZ[0].length || zPos + hs > shadeX[0].length)
-            System.out.println(xPos + ", " + yPos + ", " + zPos + " is out of bounds");
-        else if(drawn) {
-            shadeZ[(int) (hs + xPos)][(int) (hs + yPos)] = Math.max(shadeZ[(int) (hs + xPos)][(int) (hs + yPos)], (hs + zPos));
-            shadeX[(int) (hs + yPos)][(int) (hs + zPos)] = Math.max(shadeX[(int) (hs + yPos)][(int) (hs + zPos)], (hs + xPos));
-        }
+        return drawn;
     }
-    
+
     public Renderer clear() {
         pixmap.setColor(0);
         pixmap.fill();
         fill(depths, 0);
-        fill(outlines, (byte) 0);
         fill(voxels, -1);
         fill(shadeX, -1f);
         fill(shadeZ, -1f);
+        fill(colorIndices, (byte) 0);
+        fill(lightLevels, NO_LIGHT);
+        clearEmitted();
+        if(outlines != null)
+            clearLegacy();
+        return this;
+    }
+
+    private void clearEmitted() {
+        for (short[] column : emitLevels) {
+            Arrays.fill(column, (short) 0);
+        }
+    }
+
+    /**
+     * Fills the deprecated planes for one cell the way splat did before it stored {@link #colorIndices}.
+     */
+    @SuppressWarnings("removal")
+    private void splatLegacy(int x, int y, byte voxel, VoxMaterial m) {
+        final int i = voxel & 255;
+        final float emit = m.getTrait(VoxMaterial.MaterialTrait._emit) * 0.75f;
+        colorL[x][y] = paletteL[i];
+        colorA[x][y] = paletteA[i];
+        colorB[x][y] = paletteB[i];
+        materials[x][y] = m;
+        outlines[x][y] = ColorTools.toRGBA8888(limitToGamut(paletteL[i] * (0.8f + emit) + baseLight, (paletteA[i] - 0.5f) * neutral + 0.5f, (paletteB[i] - 0.5f) * neutral + 0.5f, 1f));
+    }
+
+    @SuppressWarnings("removal")
+    private void clearLegacy() {
+        fill(outlines, 0);
+        fill(materials, (VoxMaterial) null);
         fill(colorL, -1f);
         fill(colorA, -1f);
         fill(colorB, -1f);
-        for (int i = 0; i < materials.length; i++) {
-            Arrays.fill(materials[i], null);
-        }
-        return this;
+        fill(midShading, 0f);
     }
 
     /**
@@ -451,12 +710,10 @@ public class Renderer {
             normalMap.setColor(0);
             normalMap.fill();
         }
-        int xSize = depths.length - 1, ySize = depths[0].length - 1, depth;
-        int v, vx, vy, vz, fx, fy, fz;
-        float hs = (size) * 0.5f, ox, oy, oz, tx, ty, tz;
-        final float cYaw = cos_(yaw), sYaw = sin_(yaw);
-        final float cPitch = cos_(pitch), sPitch = sin_(pitch);
-        final float cRoll = cos_(roll), sRoll = sin_(roll);
+        int xSize = depths.length - 1, ySize = depths[0].length - 1;
+        final float cYaw = cosTurns(yaw), sYaw = sinTurns(yaw);
+        final float cPitch = cosTurns(pitch), sPitch = sinTurns(pitch);
+        final float cRoll = cosTurns(roll), sRoll = sinTurns(roll);
         // ???
         final float x_x = cYaw * cPitch, y_x = -sYaw * cPitch, z_x = -sPitch;
         final float x_y = cRoll*sYaw-sRoll*sPitch*cYaw, y_y = sRoll*sPitch*sYaw+cRoll*cYaw, z_y =-sRoll*cPitch;
@@ -469,8 +726,80 @@ public class Renderer {
 //        final float x_x = cYaw * cPitch, y_x = cYaw * sPitch * sRoll - sYaw * cRoll, z_x = cYaw * sPitch * cRoll + sYaw * sRoll;
 //        final float x_y = sYaw * cPitch, y_y = sYaw * sPitch * sRoll + cYaw * cRoll, z_y = sYaw * sPitch * cRoll - cYaw * sRoll;
 //        final float x_z = -sPitch, y_z = cPitch * sRoll, z_z = cPitch * cRoll;
+        colorTables();
+        gatherLight(x_x, y_x, z_x, x_y, y_y, z_y, x_z, y_z, z_z);
+        final float lightStep = 1f / LIGHT_ONE, emitStep = 0.3f * lightPower / EMIT_STEPS,
+                darken = baseLight - 0.1f * lightPower;
+        for (int hx = 0, w = pixmap.getWidth(); hx < w; hx++) {
+            for (int hy = 0, h = pixmap.getHeight(); hy < h; hy++) {
+                final int cell = shownCell(hx, hy);
+                if(cell == -1) continue;
+                final int x = cell / (ySize + 1), y = cell % (ySize + 1), index = colorIndices[x][y] & 255;
+                pixelDraw(pixmap, hx, hy, ColorTools.toRGBA8888(ColorTools.oklab(
+                        Math.min(Math.max(lightLevels[x][y] * lightStep + emitLevels[x][y] * emitStep + darken, 0f), 1f),
+                        (paletteA[index] - 0.5f) * neutral + 0.5f,
+                        (paletteB[index] - 0.5f) * neutral + 0.5f, 1f)));
+            }
+        }
+        if (outline != 0) {
+            drawSampledOutlines(threshold);
+        }
+
+        if(computeNormals){
+            if(voxelNormals != null){
+                drawVoxelNormals(x_x, y_x, z_x, x_y, y_y, z_y, x_z, y_z, z_z);
+            }
+            else if(blur == null){
+                for (int y = 0; y < ySize; y++) {
+                    for (int x = 0; x < xSize; x++) {
+                        sobel(x, y);
+                    }
+                }
+            }
+            else {
+                for (int y = 0; y < ySize; y++) {
+                    for (int x = 0; x < xSize; x++) {
+                        scharr(x, y);
+                    }
+                }
+                blur.filter(normals[0], normalMap.getWidth(), normalMap.getHeight());
+                blur.filter(normals[1], normalMap.getWidth(), normalMap.getHeight());
+                blur.filter(normals[2], normalMap.getWidth(), normalMap.getHeight());
+                int color;
+                for (int y = 0, h = normalMap.getHeight(); y < h; y++) {
+                    for (int x = 0, w = normalMap.getWidth(); x < w; x++) {
+                        int idx = x + y * w;
+                        color = Color.rgba8888(normals[0][idx], normals[1][idx], normals[2][idx], normals[3][idx]);
+                        pixelDraw(normalMap, x, y, color);
+                    }
+                }
+            }
+        }
+
+        fill(depths, 0);
+        fill(voxels, -1);
+        fill(colorIndices, (byte) 0);
+        fill(shadeX, -1f);
+        fill(shadeZ, -1f);
+        fill(lightLevels, NO_LIGHT);
+        clearEmitted();
+        if(outlines != null)
+            clearLegacy();
+        return pixmap;
+    }
+
+    /**
+     * Gathers the light each drawn cell gets from the light source and spreads to its neighbors, plus the light
+     * emitted by glowing materials, given the frame's rotation matrix, into {@link #lightLevels} and
+     * {@link #emitLevels}.
+     */
+    private void gatherLight(float x_x, float y_x, float z_x, float x_y, float y_y, float z_y,
+                             float x_z, float y_z, float z_z) {
+        final int xSize = depths.length - 1, ySize = depths[0].length - 1;
+        int v, vx, vy, vz, fx, fy, fz;
+        float hs = (size) * 0.5f, ox, oy, oz, tx, ty, tz;
+        final float spreadTotal = ambient == null ? 0f : spreadTotal();
         VoxMaterial m;
-        final int step = 1 << shrink;
         for (int sx = 0; sx <= xSize; sx++) {
             for (int sy = 0; sy <= ySize; sy++) {
                 if((v = voxels[sx][sy]) != -1) {
@@ -486,24 +815,38 @@ public class Renderer {
                     fy = (int)(ty);
                     tz = ox * x_z + oy * y_z + oz * z_z + hs + hs;
                     fz = (int)(tz);
-                    m = materials[sx][sy];
+                    m = colorMaterials[colorIndices[sx][sy] & 255];
                     float rough = m.getTrait(VoxMaterial.MaterialTrait._rough);
                     float emit = m.getTrait(VoxMaterial.MaterialTrait._emit);
                     int into = 2;
                     int limit = expand, limit2 = limit * limit;
                     float spreadMul = 1f / (limit2);
-                    if (Math.abs(shadeX[fy][fz] - tx) <= into || ((fy > 1 && Math.abs(shadeX[fy - 2][fz] - tx) <= into) || (fy < shadeX.length - 2 && Math.abs(shadeX[fy + 2][fz] - tx) <= into))) {
+                    if (ambient != null) {
+                        float light = 0f;
+                        if (Math.abs(shadeX[fy][fz] - tx) <= into || ((fy > 1 && Math.abs(shadeX[fy - 2][fz] - tx) <= into) || (fy < shadeX.length - 2 && Math.abs(shadeX[fy + 2][fz] - tx) <= into))) {
+                            light = MathUtils.lerp(0.0025f, 0.001f, rough);
+                            if (Math.abs(shadeZ[fx][fy] - tz) <= into) {
+                                light *= 2f;
+                                lightLevels[sx][sy] = brighten(lightLevels[sx][sy], m.getTrait(VoxMaterial.MaterialTrait._ior) * 0.2f * lightPower);
+                            }
+                        }
+                        else if (Math.abs(shadeZ[fx][fy] - tz) <= into) {
+                            light = MathUtils.lerp(0.005f, 0.002f, rough);
+                        }
+                        lightLevels[sx][sy] = brighten(lightLevels[sx][sy], light * spreadTotal * lightPower * (0.5f + (ambient[vx][vy][vz] & 255) / 255f));
+                    }
+                    else if (Math.abs(shadeX[fy][fz] - tx) <= into || ((fy > 1 && Math.abs(shadeX[fy - 2][fz] - tx) <= into) || (fy < shadeX.length - 2 && Math.abs(shadeX[fy + 2][fz] - tx) <= into))) {
                         float spread = MathUtils.lerp(0.0025f, 0.001f, rough) * spreadMul;
                         if (Math.abs(shadeZ[fx][fy] - tz) <= into) {
                             spread *= 2f;
-                            colorL[sx][sy] += m.getTrait(VoxMaterial.MaterialTrait._ior) * 0.2f * lightPower;
+                            lightLevels[sx][sy] = brighten(lightLevels[sx][sy], m.getTrait(VoxMaterial.MaterialTrait._ior) * 0.2f * lightPower);
                         }
                         int dist;
                         spread *= lightPower;
                         for (int i = -limit, si = sx + i; i <= limit; i++, si++) {
                             for (int j = -limit, sj = sy + j; j <= limit; j++, sj++) {
                                 if((dist = i * i + j * j) > limit2 || si < 0 || sj < 0 || si > xSize || sj > ySize) continue;
-                                colorL[si][sj] += spread * (limit + 1 - (float)Math.sqrt(dist));
+                                lightLevels[si][sj] = brighten(lightLevels[si][sj], spread * (limit + 1 - (float)Math.sqrt(dist)));
                             }
                         }
                     }
@@ -513,136 +856,197 @@ public class Renderer {
                         for (int i = -limit, si = sx + i; i <= limit; i++, si++) {
                             for (int j = -limit, sj = sy + j; j <= limit; j++, sj++) {
                                 if((dist = i * i + j * j) > limit2 || si < 0 || sj < 0 || si > xSize || sj > ySize) continue;
-                                float change = spread * (limit + 1 - (float)Math.sqrt(dist));
-                                colorL[si][sj] += change;
+                                lightLevels[si][sj] = brighten(lightLevels[si][sj], spread * (limit + 1 - (float)Math.sqrt(dist)));
                             }
                         }
                     }
                     if (emit > 0) {
                         final int radius = 14;
-                        float spread = emit * 0.003f * lightPower;
+                        // emit * 0.003f * lightPower, in steps of emitLevels, which are 0.3f * lightPower / EMIT_STEPS
+                        float spread = emit * 0.01f * EMIT_STEPS;
                         for (int i = -radius, si = sx + i; i <= radius; i++, si++) {
                             for (int j = -radius, sj = sy + j; j <= radius; j++, sj++) {
                                 final int dist = i * i + j * j;
                                 if(dist > radius * radius || si < 0 || sj < 0 || si > xSize || sj > ySize) continue;
-                                float change = spread * (radius - (float) Math.sqrt(dist));
-                                midShading[si][sj] = Math.min(midShading[si][sj] + change, 0.3f * lightPower);
+                                emitLevels[si][sj] = (short) Math.min(emitLevels[si][sj] + Math.round(spread * (radius - (float) Math.sqrt(dist))), EMIT_STEPS);
                             }
                         }
                     }
                 }
             }
         }
-        for (int x = xSize; x >= 0; x--) {
-            for (int y = ySize; y >= 0; y--) {
-                if (colorA[x][y] >= 0f) {
-                    pixelDraw(pixmap, x >>> shrink, y >>> shrink, ColorTools.toRGBA8888(ColorTools.oklab(
-                            Math.min(Math.max(colorL[x][y] - 0.1f * lightPower + midShading[x][y] + baseLight, 0f), 1f),
-                                                        (colorA[x][y] - 0.5f) * neutral + 0.5f,
-                            (colorB[x][y] - 0.5f) * neutral + 0.5f, 1f)));
-                }
+    }
+
+    /**
+     * The level in {@link #lightLevels} for a lightness, rounded to the nearest step.
+     */
+    private static int level(float lightness) {
+        return Math.round(lightness * LIGHT_ONE);
+    }
+
+    /**
+     * The level {@code light} brighter than the given one, saturating at the int limits; an infinite light, which an
+     * {@link #expand} of 0 gives, rounds to the upper limit.
+     */
+    private static int brighten(int level, float light) {
+        return (int) Math.min(Math.max(level + (long) level(light), Integer.MIN_VALUE), Integer.MAX_VALUE);
+    }
+
+    /**
+     * With baked ambient light, each lit pixel gets the total light it would have spread over its neighbors.
+     */
+    private float spreadTotal() {
+        float spreadTotal = 0f;
+        final int limit = expand, limit2 = Math.max(1, limit * limit);
+        for (int i = -limit; i <= limit; i++) {
+            for (int j = -limit; j <= limit; j++) {
+                final int dist = i * i + j * j;
+                if (dist <= limit * limit) spreadTotal += (limit + 1 - (float) Math.sqrt(dist)) / limit2;
             }
         }
-        if (outline != 0) {
-            int inner, outer = 0x000000FF;
-            if(outline <= 1) outer = 0;
-            else if(outline >= 5) outer = -1; // white
-            for (int x = step; x <= xSize - step; x+= step) {
-//                final int hx = x;
-                final int hx = x >>> shrink;
-                for (int y = step; y <= ySize - step; y+= step) {
-//                    final int hy = y;
-                    int hy = y >>> shrink;
-                    inner = outlines[x][y];
-                    if (inner != 0) {
-                        if(outline >= 2) inner = (inner >> 1 & 0x7F7F7F00) | 0xFF;
-                        if(outline == 2) outer = inner;
-                        depth = depths[x][y];
-                        if(outline < 5) {
-                            if (outlines[x - step][y] == 0) {
-                                pixelDraw(pixmap, hx - 1, hy, outer);
-                            } else if (depths[x - step][y] < depth - threshold) {
-                                pixelDraw(pixmap, hx - 1, hy, inner);
-                            }
-                            if (outlines[x + step][y] == 0) {
-                                pixelDraw(pixmap, hx + 1, hy, outer);
-                            } else if (depths[x + step][y] < depth - threshold) {
-                                pixelDraw(pixmap, hx + 1, hy, inner);
-                            }
-                            if (outlines[x][y - step] == 0) {
-                                pixelDraw(pixmap, hx, hy - 1, outer);
-                            } else if (depths[x][y - step] < depth - threshold) {
-                                pixelDraw(pixmap, hx, hy - 1, inner);
-                            }
-                            if (outlines[x][y + step] == 0) {
-                                pixelDraw(pixmap, hx, hy + 1, outer);
-                            } else if (depths[x][y + step] < depth - threshold) {
-                                pixelDraw(pixmap, hx, hy + 1, inner);
-                            }
-                        }
+        return spreadTotal;
+    }
 
-                        // block outline, applies to outer only
-                        if(outline >= 4) {
-                            pixmap.setColor(outer);
-                            if (outlines[x - step][y - step] == 0) {
-                                pixelDraw(pixmap, hx - 1, hy - 1);
-                            }
-                            if (outlines[x + step][y - step] == 0) {
-                                pixelDraw(pixmap, hx + 1, hy - 1);
-                            }
-                            if (outlines[x - step][y + step] == 0) {
-                                pixelDraw(pixmap, hx - 1, hy + 1);
-                            }
-                            if (outlines[x + step][y + step] == 0) {
-                                pixelDraw(pixmap, hx + 1, hy + 1);
-                            }
-                        }
-                    }
-                }
+    /**
+     * Looks up the material and edge color for every palette index, as of the current {@link #materialMap},
+     * {@link #baseLight}, and saturation.
+     */
+    private void colorTables() {
+        for (int i = 1; i < 256; i++) {
+            final VoxMaterial m = materialMap.get(i);
+            colorMaterials[i] = m;
+            if(m == null) continue;
+            final float emit = m.getTrait(VoxMaterial.MaterialTrait._emit) * 0.75f;
+            edgeColors[i] = ColorTools.toRGBA8888(limitToGamut(paletteL[i] * (0.8f + emit) + baseLight, (paletteA[i] - 0.5f) * neutral + 0.5f, (paletteB[i] - 0.5f) * neutral + 0.5f, 1f));
+        }
+    }
+
+    /**
+     * Finds which full-size cell is shown in the pixmap pixel at hx, hy; this is the cell with the lowest x, then
+     * lowest y, that has a visible color.
+     * @return the cell as {@code x * height + y}, where height is the full-size height, or -1 if no cell is visible
+     */
+    private int shownCell(int hx, int hy) {
+        final int step = 1 << shrink, height = colorIndices[0].length;
+        for (int x = hx * step, xe = x + step; x < xe; x++) {
+            final byte[] indexColumn = colorIndices[x];
+            for (int y = hy * step, ye = y + step; y < ye; y++) {
+                final int index = indexColumn[y] & 255;
+                if(index != 0 && paletteA[index] >= 0f)
+                    return x * height + y;
             }
         }
+        return -1;
+    }
 
-        if(computeNormals){
-            if(blur == null){
-                for (int y = 0; y < ySize; y++) {
-                    for (int x = 0; x < xSize; x++) {
-                        sobel(x, y);
-                    }
-                }
+    /**
+     * Takes the edge color and depth of every cell that {@link #drawOutlines(int[][], int[][], int, int, int)}
+     * looks at, which is one per pixmap pixel, and draws the outlines from those.
+     */
+    private void drawSampledOutlines(int threshold) {
+        final int step = 1 << shrink, xSize = depths.length - 1, ySize = depths[0].length - 1;
+        for (int x = 0, hx = 0; x <= xSize; x += step, hx++) {
+            final byte[] indexColumn = colorIndices[x];
+            final int[] depthColumn = depths[x], outlineSamples = sampledOutlines[hx], depthSamples = sampledDepths[hx];
+            for (int y = 0, hy = 0; y <= ySize; y += step, hy++) {
+                outlineSamples[hy] = edgeColors[indexColumn[y] & 255];
+                depthSamples[hy] = depthColumn[y];
             }
-            else {
-                for (int y = 0; y < ySize; y++) {
-                    for (int x = 0; x < xSize; x++) {
-                        scharr(x, y);
+        }
+        drawOutlines(sampledOutlines, sampledDepths, xSize >>> shrink, ySize >>> shrink, threshold);
+    }
+
+    /**
+     * Draws the edges chosen by {@link #outline} over {@link #pixmap}, given the edge color and depth shown in each of
+     * its pixels. An outline value of 0 means nothing was drawn in that pixel.
+     */
+    private void drawOutlines(int[][] outlines, int[][] depths, int xSize, int ySize, int threshold) {
+        int inner, depth, outer = 0x000000FF;
+        if(outline <= 1) outer = 0;
+        else if(outline >= 5) outer = -1; // white
+        for (int x = 1; x < xSize; x++) {
+            for (int y = 1; y < ySize; y++) {
+                inner = outlines[x][y];
+                if (inner != 0) {
+                    if(outline >= 2) inner = (inner >> 1 & 0x7F7F7F00) | 0xFF;
+                    if(outline == 2) outer = inner;
+                    depth = depths[x][y];
+                    if(outline < 5) {
+                        if (outlines[x - 1][y] == 0) {
+                            pixelDraw(pixmap, x - 1, y, outer);
+                        } else if (depths[x - 1][y] < depth - threshold) {
+                            pixelDraw(pixmap, x - 1, y, inner);
+                        }
+                        if (outlines[x + 1][y] == 0) {
+                            pixelDraw(pixmap, x + 1, y, outer);
+                        } else if (depths[x + 1][y] < depth - threshold) {
+                            pixelDraw(pixmap, x + 1, y, inner);
+                        }
+                        if (outlines[x][y - 1] == 0) {
+                            pixelDraw(pixmap, x, y - 1, outer);
+                        } else if (depths[x][y - 1] < depth - threshold) {
+                            pixelDraw(pixmap, x, y - 1, inner);
+                        }
+                        if (outlines[x][y + 1] == 0) {
+                            pixelDraw(pixmap, x, y + 1, outer);
+                        } else if (depths[x][y + 1] < depth - threshold) {
+                            pixelDraw(pixmap, x, y + 1, inner);
+                        }
                     }
-                }
-                blur.filter(normals[0], normalMap.getWidth(), normalMap.getHeight());
-                blur.filter(normals[1], normalMap.getWidth(), normalMap.getHeight());
-                blur.filter(normals[2], normalMap.getWidth(), normalMap.getHeight());
-                int color;
-                for (int y = 0, h = normalMap.getHeight(); y < h; y++) {
-                    for (int x = 0, w = normalMap.getWidth(); x < w; x++) {
-                        int idx = x + y * w;
-                        color = Color.rgba8888(normals[0][idx], normals[1][idx], normals[2][idx], normals[3][idx]);
-                        pixelDraw(normalMap, x, y, color);
+
+                    // block outline, applies to outer only
+                    if(outline >= 4) {
+                        pixmap.setColor(outer);
+                        if (outlines[x - 1][y - 1] == 0) {
+                            pixelDraw(pixmap, x - 1, y - 1);
+                        }
+                        if (outlines[x + 1][y - 1] == 0) {
+                            pixelDraw(pixmap, x + 1, y - 1);
+                        }
+                        if (outlines[x - 1][y + 1] == 0) {
+                            pixelDraw(pixmap, x - 1, y + 1);
+                        }
+                        if (outlines[x + 1][y + 1] == 0) {
+                            pixelDraw(pixmap, x + 1, y + 1);
+                        }
                     }
                 }
             }
         }
+    }
 
-        fill(depths, 0);
-        fill(outlines, (byte) 0);
-        fill(voxels, -1);
-        fill(shadeX, -1f);
-        fill(shadeZ, -1f);
-        fill(colorL, -1f);
-        fill(colorA, -1f);
-        fill(colorB, -1f);
-        fill(midShading, 0f);
-        for (int i = 0; i < materials.length; i++) {
-            Arrays.fill(materials[i], null);
+    /**
+     * Fills {@link #normalMap} from {@link #voxelNormals}, using the voxel that {@link #blit(float, float, float)}
+     * shows in each pixel of {@link #pixmap}. Normals are turned by the frame's rotation matrix, then expressed with
+     * red as right, green as up, and blue as toward the camera, which is the direction along which the projection
+     * doesn't move a point on screen.
+     */
+    private void drawVoxelNormals(float x_x, float y_x, float z_x, float x_y, float y_y, float z_y,
+                                  float x_z, float y_z, float z_z) {
+        // right is (-1, 1, 0), toward the camera is (1, 1, 2 * distortVXY / distortVZ), and up is at right angles to both
+        final float rs = (float) Math.sqrt(0.5), fc = 2f * distortVXY / distortVZ,
+                fs = 1f / (float) Math.sqrt(2f + fc * fc), us = 1f / (float) Math.sqrt(2f * fc * fc + 4f);
+        final int step = 1 << shrink, w = normalMap.getWidth(), h = normalMap.getHeight();
+        for (int hx = 0; hx < w; hx++) {
+            for (int hy = 0; hy < h; hy++) {
+                short encoded = 0;
+                // blit draws the pixmap going down from the highest x and y, so the lowest x, then y, is what shows;
+                // voxels seen through gaps between splats aren't on the surface and have no normal, so skip those
+                for (int x = hx * step, xe = Math.min(x + step, voxels.length); encoded == 0 && x < xe; x++) {
+                    for (int y = hy * step, ye = Math.min(y + step, voxels[x].length); y < ye; y++) {
+                        final int v = voxels[x][y];
+                        if(v != -1 && (encoded = voxelNormals[v & 0x3FF][v >>> 10 & 0x3FF][v >>> 20 & 0x3FF]) != 0) break;
+                    }
+                }
+                if(encoded == 0) continue;
+                Tools3D.decodeNormal(encoded, normal);
+                final float nx = normal[0] * x_x + normal[1] * y_x + normal[2] * z_x,
+                        ny = normal[0] * x_y + normal[1] * y_y + normal[2] * z_y,
+                        nz = normal[0] * x_z + normal[1] * y_z + normal[2] * z_z;
+                final float right = (ny - nx) * rs, up = (2f * nz - fc * (nx + ny)) * us, toward = (nx + ny + fc * nz) * fs;
+                pixelDraw(normalMap, hx, hy, Color.rgba8888(right * 0.5f + 0.5f, up * 0.5f + 0.5f, toward * 0.5f + 0.5f, 1f));
+            }
         }
-        return pixmap;
     }
 
     // To move one x+ in voxels is x + 2, y - 1 in pixels.
@@ -656,7 +1060,7 @@ public class Renderer {
         this.materialMap = materialMap;
         final int size = colors.length;
         final float hs = (size) * 0.5f;
-        final float c = cos_(angleTurns), s = sin_(angleTurns);
+        final float c = cosTurns(angleTurns), s = sinTurns(angleTurns);
         for (int z = VoxIOExtended.minZ; z <= VoxIOExtended.maxZ; z++) {
             for (int x = VoxIOExtended.minX; x <= VoxIOExtended.maxX; x++) {
                 for (int y = VoxIOExtended.minY; y <= VoxIOExtended.maxY; y++) {
@@ -678,9 +1082,9 @@ public class Renderer {
         final int size = colors.length;
         final float hs = size * 0.5f;
         float ox, oy, oz; // offset x,y,z
-        final float cYaw = cos_(yaw), sYaw = sin_(yaw);
-        final float cPitch = cos_(pitch), sPitch = sin_(pitch);
-        final float cRoll = cos_(roll), sRoll = sin_(roll);
+        final float cYaw = cosTurns(yaw), sYaw = sinTurns(yaw);
+        final float cPitch = cosTurns(pitch), sPitch = sinTurns(pitch);
+        final float cRoll = cosTurns(roll), sRoll = sinTurns(roll);
         // ???
         final float x_x = cYaw * cPitch, y_x = -sYaw * cPitch, z_x = -sPitch;
         final float x_y = cRoll*sYaw-sRoll*sPitch*cYaw, y_y = sRoll*sPitch*sYaw+cRoll*cYaw, z_y =-sRoll*cPitch;
@@ -693,6 +1097,15 @@ public class Renderer {
 //        final float x_x = cYaw * cPitch, y_x = cYaw * sPitch * sRoll - sYaw * cRoll, z_x = cYaw * sPitch * cRoll + sYaw * sRoll;
 //        final float x_y = sYaw * cPitch, y_y = sYaw * sPitch * sRoll + cYaw * cRoll, z_y = sYaw * sPitch * cRoll - cYaw * sRoll;
 //        final float x_z = -sPitch, y_z = cPitch * sRoll, z_z = cPitch * cRoll;
+        if(quarterTurns(yaw) >= 0 && quarterTurns(pitch) >= 0 && quarterTurns(roll) >= 0
+                && isHalfInteger(translateX) && isHalfInteger(translateY) && isHalfInteger(translateZ)
+                && isHalfInteger(distortHXY) && isHalfInteger(distortVXY) && isHalfInteger(distortVZ)) {
+            splatQuarterTurns(colors, (int) x_x, (int) y_x, (int) z_x, (int) x_y, (int) y_y, (int) z_y,
+                    (int) x_z, (int) y_z, (int) z_z, (int) (translateX * 2f), (int) (translateY * 2f), (int) (translateZ * 2f));
+            return;
+        }
+        if(fixedPoint && splatFixedPoint(colors, x_x, y_x, z_x, x_y, y_y, z_y, x_z, y_z, z_z, translateX, translateY, translateZ))
+            return;
         for (int z = VoxIOExtended.minZ; z <= VoxIOExtended.maxZ; z++) {
             for (int x = VoxIOExtended.minX; x <= VoxIOExtended.maxX; x++) {
                 for (int y = VoxIOExtended.minY; y <= VoxIOExtended.maxY; y++) {
@@ -710,6 +1123,354 @@ public class Renderer {
         }
     }
 
+    private static boolean isHalfInteger(float f) {
+        final float d = f * 2f;
+        return Math.abs(d) < 0x1p24f && d == (float) Math.floor(d);
+    }
+
+    /**
+     * True if f is a multiple of {@code 1.0 / 65536} no larger than 16 either way, so it is exact in 16.16 fixed point.
+     */
+    private static boolean isFixed(float f) {
+        final float d = f * 0x1p16f;
+        return Math.abs(f) <= 16f && d == (float) Math.floor(d);
+    }
+
+    /**
+     * The part of {@link #splatOnly(byte[][][], float, float, float, float, float, float)} used when {@link #fixedPoint}
+     * is true and the angles aren't all quarter-turns. The rotation is converted once to 32.32 fixed-point longs, and
+     * the splat position of each voxel is found by adding a constant to the one before it along y. Screen position and
+     * depth are then found from the position with the distort factors in 16.16 fixed point, so they must be multiples
+     * of {@code 1.0 / 65536}, as the translation must be multiples of 0.5; otherwise this returns false, having drawn
+     * nothing, and the float path is used.
+     * <br>
+     * The float path rounds after every operation, so this can't simply compute the same values more precisely. Instead,
+     * this bounds how far either path's rounding can move a position, screen position, or depth from the exact value,
+     * and any voxel that lands within that distance of a rounding boundary, or of the bounds splat() checks, is drawn
+     * with {@link #splat(float, float, float, int, int, int, byte)} itself. Every other voxel rounds the same way on
+     * both paths, so the result is exactly what the float path gives. For the default distortion, a few percent of
+     * voxels take the float path. Drawn voxels are shaded from their float positions, so {@link #shadeX} and
+     * {@link #shadeZ} match too; as with the quarter-turn path, voxels outside them are drawn without a message.
+     * @return true if colors was splatted, or false if the float path must be used
+     */
+    private boolean splatFixedPoint(byte[][][] colors, float x_x, float y_x, float z_x, float x_y, float y_y, float z_y,
+                                    float x_z, float y_z, float z_z, float translateX, float translateY, float translateZ) {
+        if(!isHalfInteger(translateX) || !isHalfInteger(translateY) || !isHalfInteger(translateZ)
+                || !isFixed(distortHXY) || !isFixed(distortVXY) || !isFixed(distortVZ))
+            return false;
+        final int size = colors.length;
+        final float hs = size * 0.5f, constant = this.size * ((distortVXY) * 3);
+        // how far a splat position can be from the origin, and a screen position or depth from 0
+        final double offset = hs + Math.max(Math.abs(translateX), Math.max(Math.abs(translateY), Math.abs(translateZ))),
+                rowSum = Math.max(Math.abs(x_x) + Math.abs(y_x) + Math.abs(z_x),
+                        Math.max(Math.abs(x_y) + Math.abs(y_y) + Math.abs(z_y), Math.abs(x_z) + Math.abs(y_z) + Math.abs(z_z))),
+                reach = offset * rowSum + Math.max(size, this.size),
+                scale = 2 * Math.abs(distortHXY) + 2 * Math.abs(distortVXY) + Math.abs(distortVZ),
+                screen = scale * (reach + this.size) + Math.abs(constant) + 2;
+        // screen values are in steps of 2 to the -40, so they must stay well below 2 to the 62
+        if(screen >= 0x1p21) return false;
+        // each float operation is off by at most 2 to the -24 of its result; the float path takes 4 to find a
+        // position and 6 more for a screen position or depth, while this path loses up to 2 to the -33 per rotation
+        // coefficient and 2 to the -24 when a position is shifted down. Both are doubled to leave a margin.
+        final double positionError = 5 * 0x1p-24 * reach + 3 * offset * 0x1p-33 + 0x1p-24;
+        final long positionSlack = (long) Math.ceil(2 * positionError * 0x1p24),
+                screenSlack = (long) Math.ceil(2 * (scale * positionError + 6 * 0x1p-24 * screen) * 0x1p40);
+        final long xx = Math.round(x_x * 0x1p32), yx = Math.round(y_x * 0x1p32), zx = Math.round(z_x * 0x1p32),
+                xy = Math.round(x_y * 0x1p32), yy = Math.round(y_y * 0x1p32), zy = Math.round(z_y * 0x1p32),
+                xz = Math.round(x_z * 0x1p32), yz = Math.round(y_z * 0x1p32), zz = Math.round(z_z * 0x1p32);
+        final long hxy = (long) (distortHXY * 0x1p16f), vxy = (long) (distortVXY * 0x1p16f),
+                vz = (long) (distortVZ * 0x1p16f), vConstant = (long) (constant * 0x1p40), one = 1L << 40, half = 1L << 39;
+        final long low = -1L << 24, high = (long) this.size * 2L << 24;
+        final int translateX2 = (int) (translateX * 2f), translateY2 = (int) (translateY * 2f), translateZ2 = (int) (translateZ * 2f);
+        final int minY = VoxIOExtended.minY, maxY = VoxIOExtended.maxY;
+        for (int z = VoxIOExtended.minZ; z <= VoxIOExtended.maxZ; z++) {
+            final int oz2 = z * 2 - size + translateZ2;
+            for (int x = VoxIOExtended.minX; x <= VoxIOExtended.maxX; x++) {
+                final int ox2 = x * 2 - size + translateX2, oy2 = minY * 2 - size + translateY2;
+                // the splat position of the voxel at minY, in steps of 2 to the -33
+                long px = ox2 * xx + oy2 * yx + oz2 * zx + ((long) size << 33),
+                        py = ox2 * xy + oy2 * yy + oz2 * zy + ((long) size << 33),
+                        pz = ox2 * xz + oy2 * yz + oz2 * zz + ((long) size << 32);
+                for (int y = minY; y <= maxY; y++, px += yx << 1, py += yy << 1, pz += yz << 1) {
+                    final byte v = colors[x][y][z];
+                    if (v == 0) continue;
+                    // in steps of 2 to the -24, so that multiplying by a distort factor stays in range
+                    final long x24 = px >> 9, y24 = py >> 9, z24 = pz >> 9;
+                    // in steps of 2 to the -40, with the 0.5 that splat() adds before casting
+                    final long sx = Math.max(0L, (((long) this.size << 24) + y24 - x24) * hxy + one) + half,
+                            sy = Math.max(0L, z24 * vz + vConstant - vxy * (x24 + y24) + one) + half,
+                            depth = (x24 + y24) * hxy + z24 * vz + half;
+                    final boolean exact = !(near(x24, low, positionSlack) || near(x24, high, positionSlack)
+                            || near(y24, low, positionSlack) || near(y24, high, positionSlack)
+                            || near(z24, low, positionSlack) || near(z24, high, positionSlack)
+                            || nearInteger(sx, screenSlack) || nearInteger(sy, screenSlack) || nearInteger(depth, screenSlack));
+                    if(exact && (x24 < low || y24 < low || z24 < low || x24 > high || y24 > high || z24 > high
+                            || !splatPixels((int) (sx >> 40) - originX, (int) (sy >> 40) - originY,
+                            (int) (depth >= 0L ? depth >> 40 : -(-depth >> 40)), x, y, z, v)))
+                        continue;
+                    final float ox = x - hs + translateX, oy = y - hs + translateY, oz = z - hs + translateZ,
+                            xPos = ox * x_x + oy * y_x + oz * z_x + size,
+                            yPos = ox * x_y + oy * y_y + oz * z_y + size,
+                            zPos = ox * x_z + oy * y_z + oz * z_z + hs;
+                    if(exact)
+                        shade(xPos, yPos, zPos);
+                    else
+                        splat(xPos, yPos, zPos, x, y, z, v);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean near(long a, long b, long slack) {
+        return Math.abs(a - b) <= slack;
+    }
+
+    /**
+     * True if a value in steps of 2 to the -40 is within slack steps of an integer.
+     */
+    private static boolean nearInteger(long value, long slack) {
+        final long fraction = value & (1L << 40) - 1L;
+        return fraction <= slack || fraction >= (1L << 40) - slack;
+    }
+
+    /**
+     * Records a drawn voxel's splat position in {@link #shadeX} and {@link #shadeZ}, the same way
+     * {@link #splat(float, float, float, int, int, int, byte)} does, skipping positions outside them without a message.
+     */
+    private void shade(float xPos, float yPos, float zPos) {
+        final float hs = size * 0.5f;
+        if(xPos < -hs || yPos < -hs || zPos < -hs || xPos + hs > shadeZ.length || yPos + hs > shadeZ[0].length || zPos + hs > shadeX[0].length)
+            return;
+        shadeZ[(int) (hs + xPos)][(int) (hs + yPos)] = Math.max(shadeZ[(int) (hs + xPos)][(int) (hs + yPos)], (hs + zPos));
+        shadeX[(int) (hs + yPos)][(int) (hs + zPos)] = Math.max(shadeX[(int) (hs + yPos)][(int) (hs + zPos)], (hs + xPos));
+    }
+
+    /**
+     * The part of {@link #splatOnly(byte[][][], float, float, float, float, float, float)} used when every angle is a
+     * multiple of a quarter-turn, so the rotation only permutes and negates axes. Positions are tracked as integers at
+     * twice their real value, which is exact because the model's center and the translation are multiples of 0.5, and
+     * each step along y just adds a constant instead of doing any multiplication. The distort factors must also be
+     * multiples of 0.5, so that {@link #splatDoubled(int, int, int, int, int, int, byte)} can project without floats.
+     */
+    private void splatQuarterTurns(byte[][][] colors, int x_x, int y_x, int z_x, int x_y, int y_y, int z_y,
+                                   int x_z, int y_z, int z_z, int translateX2, int translateY2, int translateZ2) {
+        final int size = colors.length;
+        final int minY = VoxIOExtended.minY, maxY = VoxIOExtended.maxY;
+        for (int z = VoxIOExtended.minZ; z <= VoxIOExtended.maxZ; z++) {
+            final int oz = z * 2 - size + translateZ2;
+            for (int x = VoxIOExtended.minX; x <= VoxIOExtended.maxX; x++) {
+                final int ox = x * 2 - size + translateX2, oy = minY * 2 - size + translateY2;
+                // twice the splat position of the voxel at minY
+                int px = ox * x_x + oy * y_x + oz * z_x + size * 2,
+                        py = ox * x_y + oy * y_y + oz * z_y + size * 2,
+                        pz = ox * x_z + oy * y_z + oz * z_z + size;
+                for (int y = minY; y <= maxY; y++, px += y_x << 1, py += y_y << 1, pz += y_z << 1) {
+                    final byte v = colors[x][y][z];
+                    if (v != 0) {
+                        splatDoubled(px, py, pz, x, y, z, v);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The same as {@link #splat(float, float, float, int, int, int, byte)}, but given each position at twice its real
+     * value, and only usable when each distort factor is a multiple of 0.5. Every screen position and depth is then a
+     * multiple of 0.25, so they are computed here as ints at four times their value, and rounded the same way splat's
+     * float casts round them. Voxels outside the shade buffers are drawn but not shaded, without a message.
+     */
+    private void splatDoubled(int px, int py, int pz, int vx, int vy, int vz, byte voxel) {
+        if(px <= -2 || py <= -2 || pz <= -2 || px >= size * 4 || py >= size * 4 || pz >= size * 4)
+            return;
+        final int hxy = (int) (distortHXY * 2), vxy = (int) (distortVXY * 2), vz2 = (int) (distortVZ * 2);
+        // each of these is four times the float value splat() computes before adding 0.5 and casting
+        final int sx = Math.max(0, (size * 2 + py - px) * hxy + 4),
+                sy = Math.max(0, pz * vz2 + size * vxy * 6 - vxy * (px + py) + 4),
+                d = (px + py) * hxy + pz * vz2;
+        final boolean drawn = splatPixels((sx + 2 >> 2) - originX, (sy + 2 >> 2) - originY, (d + 2) / 4, vx, vy, vz, voxel);
+        // twice the position in the shade buffers, which are offset by half the size
+        final int hx = size + px, hy = size + py, hz = size + pz;
+        if(drawn && hx >= 0 && hy >= 0 && hz >= 0
+                && hx < shadeZ.length * 2 && hy < shadeZ[0].length * 2 && hz < shadeX[0].length * 2) {
+            shadeZ[hx >> 1][hy >> 1] = Math.max(shadeZ[hx >> 1][hy >> 1], hz * 0.5f);
+            shadeX[hy >> 1][hz >> 1] = Math.max(shadeX[hy >> 1][hz >> 1], hx * 0.5f);
+        }
+    }
+
+    /**
+     * Splats colors into several renderers in one pass over the model, with renderer {@code i} getting the model
+     * turned by {@code yaws[i]}, then pitch and roll. Each voxel is read once and projected into every renderer while
+     * it is still in cache, so for large models this costs less memory bandwidth than calling
+     * {@link #splatOnly(byte[][][], float, float, float, float, float, float)} once per angle. The renderers must all
+     * be the same size as colors, and each gets the same result splatOnly would give it.
+     * @param colors the model to splat, which will not be modified
+     * @param renderers the renderers to splat into; each must already have its {@link #materialMap} set
+     * @param yaws the yaw, in turns, for each renderer
+     * @param count how many renderers, and yaws, to use from the start of each array
+     */
+    public static void splatBatch(byte[][][] colors, Renderer[] renderers, float[] yaws, int count,
+                                  float pitch, float roll, float translateX, float translateY, float translateZ) {
+        final int size = colors.length;
+        final float hs = size * 0.5f;
+        final float cPitch = cosTurns(pitch), sPitch = sinTurns(pitch);
+        final float cRoll = cosTurns(roll), sRoll = sinTurns(roll);
+        final float[] matrices = new float[count * 9];
+        for (int i = 0, j = 0; i < count; i++, j += 9) {
+            final float cYaw = cosTurns(yaws[i]), sYaw = sinTurns(yaws[i]);
+            matrices[j    ] = cYaw * cPitch;
+            matrices[j + 1] = -sYaw * cPitch;
+            matrices[j + 2] = -sPitch;
+            matrices[j + 3] = cRoll*sYaw-sRoll*sPitch*cYaw;
+            matrices[j + 4] = sRoll*sPitch*sYaw+cRoll*cYaw;
+            matrices[j + 5] = -sRoll*cPitch;
+            matrices[j + 6] = cRoll*sPitch*cYaw+sRoll*sYaw;
+            matrices[j + 7] = sRoll*cYaw-cRoll*sPitch*sYaw;
+            matrices[j + 8] = cPitch * cRoll;
+        }
+        for (int z = VoxIOExtended.minZ; z <= VoxIOExtended.maxZ; z++) {
+            final float oz = z - hs + translateZ;
+            for (int x = VoxIOExtended.minX; x <= VoxIOExtended.maxX; x++) {
+                final float ox = x - hs + translateX;
+                for (int y = VoxIOExtended.minY; y <= VoxIOExtended.maxY; y++) {
+                    final byte v = colors[x][y][z];
+                    if (v == 0) continue;
+                    final float oy = y - hs + translateY;
+                    for (int i = 0, j = 0; i < count; i++, j += 9) {
+                        renderers[i].splat(
+                                ox * matrices[j    ] + oy * matrices[j + 1] + oz * matrices[j + 2] + size,
+                                ox * matrices[j + 3] + oy * matrices[j + 4] + oz * matrices[j + 5] + size,
+                                ox * matrices[j + 6] + oy * matrices[j + 7] + oz * matrices[j + 8] + hs  , x, y, z, v);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders colors at several yaws with one pass over the model using
+     * {@link #splatBatch(byte[][][], Renderer[], float[], int, float, float, float, float, float)}, then blits every
+     * renderer, in parallel if more than one processor is available. Afterwards, renderer {@code i} has the render for
+     * {@code yaws[i]} in its {@link #pixmap}, and in its {@link #normalMap} if it computes normals.
+     * @param colors the model to render, which will not be modified
+     * @param renderers the renderers to draw into, all the same size as colors
+     * @param yaws the yaw, in turns, for each renderer
+     * @param count how many renderers, and yaws, to use from the start of each array
+     */
+    public static void drawSplatsBatch(byte[][][] colors, Renderer[] renderers, float[] yaws, int count,
+                                       float pitch, float roll, IntObjectMap<VoxMaterial> materialMap) {
+        for (int i = 0; i < count; i++) {
+            renderers[i].materialMap = materialMap;
+        }
+        splatBatch(colors, renderers, yaws, count, pitch, roll, 0f, 0f, 0f);
+        Tools3D.forEachSlab(count, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                renderers[i].blit(yaws[i], pitch, roll);
+            }
+        });
+    }
+
+    /**
+     * Finds how many quarter-turns of yaw it takes for colors to look exactly the same to this renderer as it did
+     * before turning. The renderer turns models around the corner shared by the four middle columns of the grid, so
+     * turning by a quarter moves the voxel at x, y to where the voxel at {@code size - y, x} was; a model can only
+     * match itself if nothing is in the x=0 or y=0 planes, which would turn outside the grid. Frames rendered at yaws
+     * that differ by a multiple of the returned amount only differ by the order voxels were splatted in.
+     * <br>
+     * Mirror symmetry isn't checked, because the light comes from one side, and so a mirrored model isn't lit the
+     * same way as the mirror image of its render.
+     * @param colors a model with equal x and y sizes; will not be modified
+     * @return 1 or 2 if the model matches itself after that many quarter-turns, or 4 if it has no yaw symmetry
+     */
+    public static int yawSymmetry(byte[][][] colors) {
+        final int size = colors.length;
+        if(size != colors[0].length) return 4;
+        for (int i = 0; i < size; i++) {
+            if(!isEmpty(colors[0][i]) || !isEmpty(colors[i][0])) return 4;
+        }
+        boolean quarter = true;
+        for (int x = 1; x < size; x++) {
+            for (int y = 1; y < size; y++) {
+                if(!Arrays.equals(colors[x][y], colors[size - x][size - y])) return 4;
+                if(quarter && !Arrays.equals(colors[x][y], colors[size - y][x])) quarter = false;
+            }
+        }
+        return quarter ? 1 : 2;
+    }
+
+    private static boolean isEmpty(byte[] column) {
+        for (byte b : column) {
+            if(b != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Makes a small Pixmap with every color this renderer can draw for the colors used in colors, so a palette can be
+     * analyzed from it instead of from rendered frames. Each palette index used in the model can only be drawn at its
+     * own A and B (after {@link #saturation(float)}), at a lightness from unlit to fully lit, plus the emitted light
+     * of nearby voxels if any are emissive; this samples that range at 32 lightness levels, and adds the colors
+     * {@link #outline} can draw. Colors show up about as often as their palette index does in the model.
+     * @param colors the model that will be rendered; will not be modified
+     * @param materialMap the materials for the model's palette indices
+     * @param expand the largest {@link #expand} that will be used, which limits how much light a pixel can gather
+     * @return a new Pixmap, which the caller must dispose
+     */
+    public Pixmap colorSwatch(byte[][][] colors, IntObjectMap<VoxMaterial> materialMap, int expand) {
+        final int levels = 32, budget = 1 << 14;
+        final long[] counts = new long[256];
+        long total = 0;
+        for (byte[][] plane : colors) {
+            for (byte[] column : plane) {
+                for (byte v : column) {
+                    counts[v & 255]++;
+                }
+            }
+        }
+        boolean emissive = false;
+        float ior = 0f;
+        for (int i = 1; i < 256; i++) {
+            if(counts[i] == 0 || paletteA[i] < 0f) continue;
+            total += counts[i];
+            final VoxMaterial m = materialMap.get(i);
+            if(m == null) continue;
+            emissive |= m.getTrait(VoxMaterial.MaterialTrait._emit) > 0f;
+            ior = Math.max(ior, m.getTrait(VoxMaterial.MaterialTrait._ior));
+        }
+        // the most a pixel's lightness can go up from being lit directly and by its neighbors, roughly
+        final float lit = lightPower * (0.2f * ior + 0.0075f * MathUtils.PI * (expand / 3f + 1f))
+                + (emissive ? 0.3f * lightPower : 0f);
+        final int[] swatch = new int[budget + 256 * (levels + 2) + 1];
+        int n = 0;
+        swatch[n++] = 0x000000FF;
+        for (int i = 1; i < 256; i++) {
+            if(counts[i] == 0 || paletteA[i] < 0f) continue;
+            final VoxMaterial m = materialMap.get(i);
+            final float emit = m == null ? 0f : m.getTrait(VoxMaterial.MaterialTrait._emit) * 0.75f;
+            final float a = (paletteA[i] - 0.5f) * neutral + 0.5f, b = (paletteB[i] - 0.5f) * neutral + 0.5f,
+                    low = paletteL[i] - 0.1f * lightPower + baseLight;
+            final int repeats = (int) Math.max(1L, counts[i] * budget / (total * levels));
+            for (int level = 0; level < levels; level++) {
+                final int color = ColorTools.toRGBA8888(ColorTools.oklab(
+                        Math.min(Math.max(low + lit * level / (levels - 1), 0f), 1f), a, b, 1f));
+                for (int r = 0; r < repeats && n < swatch.length - 2; r++) {
+                    swatch[n++] = color;
+                }
+            }
+            if(outline != 0 && n < swatch.length - 1) {
+                final int edge = ColorTools.toRGBA8888(limitToGamut(paletteL[i] * (0.8f + emit) + baseLight, a, b, 1f));
+                swatch[n++] = outline >= 2 ? (edge >> 1 & 0x7F7F7F00) | 0xFF : edge;
+            }
+        }
+        final int width = 256, height = (n + width - 1) / width;
+        Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        for (int i = 0; i < n; i++) {
+            pixmap.drawPixel(i % width, i / width, swatch[i]);
+        }
+        return pixmap;
+    }
+
     public Pixmap drawModel(VoxModel model, float yaw, float pitch, float roll,
                             float translateX, float translateY, float translateZ){
         materialMap = VoxIOExtended.lastMaterials;
@@ -2,18 +2,24 @@ package com.github.tommyettinger;
 
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.TimeUtils;
 import com.github.tommyettinger.anim8.*;
 import com.github.tommyettinger.io.VoxIOExtended;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
 public class SpotVox extends ApplicationAdapter {
     public static final boolean DEBUG = false;
     public Renderer renderer;
     public String name;
     public byte[][][] voxels;
-    private FastPNG png;
+    private FrameWriter png;
     private FastGif gif;
     public int multiple;
     public int outline;
@@ -29,6 +35,96 @@ public class SpotVox extends ApplicationAdapter {
     public float baseLight;
     public float yaw, pitch, roll;
     public int expand;
+    /**
+     * If true, renderers project voxels with fixed-point integer math when drawing one angle at a time; see
+     * {@link Renderer#fixedPoint}. Frames are the same either way.
+     */
+    public boolean fixedPoint;
+    /**
+     * How many angles to render with each pass over the model; 1 or less renders one angle at a time. Batching needs
+     * this many renderers, and so this many times the buffer memory, but reads the model far fewer times.
+     */
+    public int batch = 1;
+    /**
+     * If true, models that look the same after a half-turn or quarter-turn of yaw (see
+     * {@link Renderer#yawSymmetry(byte[][][])}) only have the frames up to that turn rendered, and the rest reuse
+     * them. Reused frames can differ from re-rendered ones by a few pixels where rounding went the other way.
+     */
+    public boolean symmetry;
+    /**
+     * If true, ambient light is computed once per model and scale with
+     * {@link Tools3D#ambientOcclusion(byte[][][], int, byte[][][])} and used as {@link Renderer#ambient}, which makes
+     * each frame cheaper to light.
+     */
+    public boolean bake;
+    /**
+     * If true and normal maps are being made, they come from per-voxel normals computed once per model and scale with
+     * {@link Tools3D#surfaceNormals(byte[][][], int, short[][][])}, instead of filtering each frame's depth.
+     */
+    public boolean voxelNormals;
+    /**
+     * How many threads compress and write PNG files while rendering goes on; 0 writes each file before rendering the
+     * next frame. Up to twice this many frames wait to be written at once; see {@link FrameWriter}.
+     */
+    public int writers = 1;
+    /**
+     * If true, instead of one PNG per angle, each scale gets one trimmed and packed atlas of every angle (and one of
+     * every normal map, if those are made), plus a JSON manifest of where each angle is; see {@link SpriteSheet}.
+     */
+    public boolean atlas;
+    /**
+     * If more than 0, the turntable GIF is streamed: its palette is analyzed from this many evenly spaced angles,
+     * rendered first, and then each frame is encoded as soon as it is rendered, instead of copying all 128 frames and
+     * analyzing every one. If 0, the palette comes from all 128 frames, which can use a lot of memory at large sizes.
+     * Defaults to 0, so the palette is the same as ever unless this is asked for; 16 is enough for most models, and
+     * keeps only one frame in memory at a time.
+     */
+    public int gifSamples = 0;
+    /**
+     * If true, the turntable GIF's palette is made once per model from the colors the renderer can draw for it (see
+     * {@link Renderer#colorSwatch(byte[][][], com.github.tommyettinger.ds.IntObjectMap, int)}), and used for every
+     * scale, instead of analyzing rendered frames. Frames are then encoded as they are rendered, as with
+     * {@link #gifSamples}, but without rendering any sample frames first.
+     */
+    public boolean modelPalette;
+    /**
+     * How to crop each angle's PNG (and normal map) to the pixels actually drawn, as given by {@link #cropMode(String)}:
+     * 0 doesn't crop, 1 crops every angle to the union of all their bounds, so they stay the same size and lined up,
+     * and 2 crops each angle to its own bounds. When cropping, each scale also gets a JSON file of where every
+     * cropped image was in the full frame. This has no effect on atlases, which are always trimmed.
+     */
+    public int crop;
+    /**
+     * If true, each renderer's canvas only covers what the model's tight bounds can reach at the angles that will be
+     * rendered, instead of what any model of {@link #size} could reach at any angle; see
+     * {@link Renderer#fit(int[], float[], float, float)}. Long, flat, or thin models then render into much smaller
+     * buffers and images. Every image still matches part of the full-size image, and {@link #crop} offsets are still
+     * given relative to the full-size image.
+     */
+    public boolean fit;
+    /**
+     * If true, a PNG with exactly the same pixels as one already written (such as from a symmetrical model, or a flat
+     * one seen from above) isn't encoded again, but made as a hard link to the first file; in an atlas, it shares the
+     * first frame's place. See {@link FrameWriter#dedupe} and {@link SpriteSheet#dedupe}.
+     */
+    public boolean dedupe;
+    /**
+     * If true, each PNG with no more than 256 distinct colors is written with an 8-bit palette, which loses nothing
+     * and is smaller and faster to compress; other PNGs are still written as RGBA. See {@link IndexedPNG}.
+     */
+    public boolean indexed;
+    /**
+     * If not null, the turntable isn't written as a GIF, but its frames at the largest scale are streamed here as they
+     * are rendered, for a video encoder to read: a file, a named pipe, or "-" for standard output (which should then
+     * have nothing else printed to it). Smaller scales get no turntable. See {@link FrameStream}.
+     */
+    public String stream;
+    /**
+     * If true, {@link #stream} gets a Y4M stream, which records its size and frame rate; if false, raw RGBA frames.
+     */
+    public boolean streamY4M = true;
+    private Renderer[] batchRenderers;
+    private float[] batchYaws;
 
     public SpotVox() {
     }
@@ -54,31 +150,52 @@ public class SpotVox extends ApplicationAdapter {
         this.baseLight = baseLight;
         this.expand = expand;
         iRotations = 1f / this.rotations;
+        outline = edgeMode(edge);
+    }
+
+    /**
+     * Gets the {@link Renderer#outline} mode for an edge name, as given on the command line.
+     * @param edge one of "none", "partial", "light", "heavy", "block", or "wire"; anything else is treated as "light"
+     * @return an int from 0 to 5, inclusive, usable as {@link Renderer#outline}
+     */
+    public static int edgeMode(String edge) {
         switch (edge) {
             case "none":
-                outline = 0;
-                break;
+                return 0;
             case "partial":
-                outline = 1;
-                break;
+                return 1;
             case "heavy":
-                outline = 3;
-                break;
+                return 3;
             case "block":
-                outline = 4;
-                break;
+                return 4;
             case "wire":
-                outline = 5;
-                break;
+                return 5;
             default:
-                outline = 2;
+                return 2;
         }
     }
 
-    @Override
-    public void create() {
-        long startTime = TimeUtils.millis();
-        renderer = new Renderer(size);
+    /**
+     * Gets the {@link #crop} mode for a crop name, as given on the command line.
+     * @param crop one of "none", "union", or "frame"; anything else is treated as "none"
+     * @return an int from 0 to 2, inclusive, usable as {@link #crop}
+     */
+    public static int cropMode(String crop) {
+        switch (crop) {
+            case "union":
+                return 1;
+            case "frame":
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Creates a Renderer for a model of the given size, configured with this SpotVox's projection and shading.
+     */
+    public Renderer makeRenderer(int size) {
+        Renderer renderer = new Renderer(size);
         renderer.palette(VoxIOExtended.lastPalette);
         renderer.distortHXY = distortHXY;
         renderer.distortVXY = distortVXY;
@@ -87,35 +204,280 @@ public class SpotVox extends ApplicationAdapter {
         renderer.blurSigma = normalSigma;
         renderer.lightPower = lightPower;
         renderer.baseLight = baseLight;
+        if(fit)
+            renderer.fit(new int[]{VoxIOExtended.minX, VoxIOExtended.minY, VoxIOExtended.minZ,
+                    VoxIOExtended.maxX, VoxIOExtended.maxY, VoxIOExtended.maxZ}, renderedYaws(), pitch, roll);
         renderer.init();
         renderer.outline = outline;
         renderer.saturation(saturation);
-        png = new FastPNG();
-        png.setFlipY(true);
+        renderer.fixedPoint = fixedPoint;
+        return renderer;
+    }
+
+    /**
+     * Gets every yaw {@link #renderAngles(int, float, float, FrameAction)} will be asked to render: each rotation, and
+     * if there is a turntable, its frames and the angles its palette may be sampled from.
+     */
+    private float[] renderedYaws() {
+        final int samples = fps != 0 ? gifSamples : 0;
+        final float[] yaws = new float[rotations + (fps != 0 ? 128 : 0) + samples];
+        int n = 0;
+        for (int i = 0; i < rotations; i++) {
+            yaws[n++] = i * iRotations + yaw;
+        }
+        for (int i = 0; i < yaws.length - rotations - samples; i++) {
+            yaws[n++] = i * 0x1p-7f + 0.125f + yaw;
+        }
+        for (int i = 0; i < samples; i++) {
+            yaws[n++] = i * (1f / samples) + 0.125f + yaw;
+        }
+        return yaws;
+    }
+
+    /**
+     * Something to do with each rendered frame; the frame is in the renderer's pixmap (and normalMap, if used).
+     */
+    private interface FrameAction {
+        void frame(int index, Renderer renderer);
+    }
+
+    /**
+     * Renders the current model at {@code count} yaws, {@code i * yawStep + yawOffset + yaw} for each i, plus the
+     * configured pitch and roll, and runs action on each frame. The yaws should evenly cover one full turn. If
+     * {@link #batch} is more than 1, up to that many angles are splatted with each pass over the model, using extra
+     * renderers made to match {@link #renderer}. If {@link #symmetry} is true and the model has yaw symmetry that
+     * lines up with the frames, only the frames before the first repeat are rendered, and action is run on each of
+     * those for every index it stands in for, so indices may not be visited in order.
+     */
+    private void renderAngles(int count, float yawStep, float yawOffset, FrameAction action) {
+        renderAngles(count, yawStep, yawOffset, false, action);
+    }
+
+    /**
+     * Like {@link #renderAngles(int, float, float, FrameAction)}, but if inOrder is true, action is always run on
+     * indices in order, which means symmetry isn't used to skip frames.
+     */
+    private void renderAngles(int count, float yawStep, float yawOffset, boolean inOrder, FrameAction action) {
+        int period = count;
+        if(symmetry && !inOrder) {
+            final int quarterTurns = Renderer.yawSymmetry(voxels);
+            if(count * quarterTurns % 4 == 0)
+                period = count * quarterTurns / 4;
+        }
+        final int unique = period;
+        final FrameAction repeated = period == count ? action : (i, r) -> {
+            for (int j = i; j < count; j += unique) {
+                action.frame(j, r);
+            }
+        };
+        if(batch <= 1) {
+            for (int i = 0; i < period; i++) {
+                renderer.drawSplats(voxels, i * yawStep + yawOffset + yaw, pitch, roll, 0, 0, 0, VoxIOExtended.lastMaterials);
+                repeated.frame(i, renderer);
+            }
+            return;
+        }
+        if(batchRenderers == null || batchRenderers[0] != renderer) {
+            disposeBatch();
+            batchRenderers = new Renderer[batch];
+            batchRenderers[0] = renderer;
+            for (int b = 1; b < batch; b++) {
+                batchRenderers[b] = makeRenderer(size);
+            }
+            batchYaws = new float[batch];
+        }
+        for (int b = 1; b < batch; b++) {
+            batchRenderers[b].expand = renderer.expand;
+            batchRenderers[b].ambient = renderer.ambient;
+            batchRenderers[b].voxelNormals = renderer.voxelNormals;
+        }
+        for (int start = 0; start < period; start += batch) {
+            final int n = Math.min(batch, period - start);
+            for (int b = 0; b < n; b++) {
+                batchYaws[b] = (start + b) * yawStep + yawOffset + yaw;
+            }
+            Renderer.drawSplatsBatch(voxels, batchRenderers, batchYaws, n, pitch, roll, VoxIOExtended.lastMaterials);
+            for (int b = 0; b < n; b++) {
+                repeated.frame(start + b, batchRenderers[b]);
+            }
+        }
+    }
+
+    private void disposeBatch() {
+        if(batchRenderers == null) return;
+        for (int b = 1; b < batchRenderers.length; b++) {
+            batchRenderers[b].pixmap.dispose();
+            if(batchRenderers[b].normalMap != null)
+                batchRenderers[b].normalMap.dispose();
+        }
+        batchRenderers = null;
+    }
+
+    /**
+     * Writes the 128-frame turntable GIF to file while rendering it. Unless {@link #modelPalette} is true, the palette
+     * is analyzed from {@link #gifSamples} angles first; after that, only the frame being rendered is in memory.
+     */
+    private void streamTurntable(FileHandle file) {
+        if(!modelPalette) {
+            Array<Pixmap> samples = new Array<>(gifSamples);
+            renderAngles(gifSamples, 1f / gifSamples, 0.125f, (i, r) -> {
+                Pixmap p = new Pixmap(r.pixmap.getWidth(), r.pixmap.getHeight(), r.pixmap.getFormat());
+                p.drawPixmap(r.pixmap, 0, 0);
+                samples.add(p);
+            });
+            gif.palette.analyze(samples);
+            for (Pixmap pix : samples) {
+                pix.dispose();
+            }
+        }
+        try (OutputStream out = new BufferedOutputStream(file.write(false))) {
+            gif.start(out);
+            gif.setFrameRate(fps);
+            renderAngles(128, 0x1p-7f, 0.125f, true, (i, r) -> gif.addFrame(r.pixmap));
+            gif.finish();
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error writing GIF: " + file, e);
+        }
+    }
+
+    /**
+     * Sends the 128 turntable frames to {@link #stream} in order as they are rendered, without writing any files. The
+     * frame size and rate are printed to standard error before the first frame, so a reader of raw RGBA can be started
+     * with them.
+     */
+    private void streamVideo() {
+        System.err.println("Streaming " + (streamY4M ? "Y4M" : "RGBA") + " frames of "
+                + renderer.pixmap.getWidth() + "x" + renderer.pixmap.getHeight() + " at " + fps + " fps to " + stream);
+        FrameStream video = FrameStream.open(stream, streamY4M, fps);
+        try {
+            renderAngles(128, 0x1p-7f, 0.125f, true, (i, r) -> video.write(r.pixmap));
+        } finally {
+            video.dispose();
+        }
+        System.out.println("Streamed " + video.frames + " frames to " + stream);
+    }
+
+    /**
+     * Renders {@link #rotations} angles and writes each one cropped, as {@link #crop} says, plus a JSON file that gives
+     * each image's offset (from the top left) and size within the full frame, which is sourceW by sourceH.
+     */
+    private void writeCropped(String folder) {
+        final String[] entries = new String[rotations];
+        // with a fitted canvas, offsets are still given in the full-size image; y is measured down from its top
+        final int fullW = renderer.fullWidth() >>> renderer.shrink, fullH = renderer.fullHeight() >>> renderer.shrink,
+                shiftX = renderer.originX >> renderer.shrink,
+                shiftY = fullH - renderer.pixmap.getHeight() - (renderer.originY >> renderer.shrink);
+        if(crop == 1) {
+            SpriteSheet sheet = new SpriteSheet();
+            sheet.dedupe = dedupe;
+            renderAngles(rotations, iRotations, 0f, (i, r) -> sheet.add(i, name + "_angle" + i, r.pixmap, normals ? r.normalMap : null));
+            final int[] region = sheet.union();
+            for (SpriteSheet.Frame f : sheet.frames) {
+                Pixmap p = sheet.draw(f, false, region);
+                png.write(Gdx.files.local(folder + f.name + ".png"), p);
+                p.dispose();
+                if(normals) {
+                    p = sheet.draw(f, true, region);
+                    png.write(Gdx.files.local(folder + "normal_" + f.name + ".png"), p);
+                    p.dispose();
+                }
+                entries[f.index] = cropEntry(f.name, region[0] + shiftX, region[1] + shiftY, region[2], region[3]);
+            }
+            sheet.dispose();
+        }
+        else {
+            final int[] bounds = new int[4];
+            renderAngles(rotations, iRotations, 0f, (i, r) -> {
+                final int w = r.pixmap.getWidth(), h = r.pixmap.getHeight();
+                bounds[0] = w;
+                bounds[1] = h;
+                bounds[2] = -1;
+                bounds[3] = -1;
+                SpriteSheet.opaqueBounds(r.pixmap, bounds);
+                if(normals)
+                    SpriteSheet.opaqueBounds(r.normalMap, bounds);
+                if(bounds[2] < 0)
+                    bounds[0] = bounds[1] = bounds[2] = bounds[3] = 0;
+                final int cw = bounds[2] - bounds[0] + 1, ch = bounds[3] - bounds[1] + 1;
+                png.write(Gdx.files.local(folder + name + "_angle" + i + ".png"), r.pixmap, bounds[0], bounds[1], cw, ch);
+                if(normals)
+                    png.write(Gdx.files.local(folder + "normal_" + name + "_angle" + i + ".png"), r.normalMap, bounds[0], bounds[1], cw, ch);
+                entries[i] = cropEntry(name + "_angle" + i, bounds[0] + shiftX, h - 1 - bounds[3] + shiftY, cw, ch);
+            });
+        }
+        StringBuilder sb = new StringBuilder(64 + rotations * 96);
+        sb.append("{\"sourceW\":").append(fullW).append(",\"sourceH\":").append(fullH)
+                .append(",\"frames\":[");
+        for (int i = 0; i < rotations; i++) {
+            sb.append(i == 0 ? "\n" : ",\n").append(entries[i]);
+        }
+        Gdx.files.local(folder + name + "_crop.json").writeString(sb.append("\n]}\n").toString(), false, "UTF-8");
+    }
+
+    private static String cropEntry(String name, int offsetX, int offsetY, int w, int h) {
+        return "{\"name\":\"" + name + "\",\"offsetX\":" + offsetX + ",\"offsetY\":" + offsetY + ",\"w\":" + w + ",\"h\":" + h + "}";
+    }
+
+    @Override
+    public void create() {
+        long startTime = TimeUtils.millis();
+        renderer = makeRenderer(size);
+        png = new FrameWriter(writers, writers << 1, true);
+        png.dedupe = dedupe;
+        png.indexed = indexed;
         gif = new FastGif();
         gif.palette = new QualityPalette();
         gif.setDitherAlgorithm(Dithered.DitherAlgorithm.BAYER);
         gif.setDitherStrength(0.25f);
-        Pixmap pixmap;
-        boolean smoothing = multiple > 0;
+        final boolean smoothing = multiple > 0;
         multiple = Math.abs(multiple);
+        if(fps != 0 && modelPalette && stream == null) {
+            // the largest scale spreads light the furthest, so its range of lightness covers every smaller scale
+            Pixmap swatch = renderer.colorSwatch(voxels, VoxIOExtended.lastMaterials, (expand + 3) << multiple - 1);
+            gif.palette.analyze(swatch);
+            swatch.dispose();
+        }
         for (int m = 0, exp = 1; m < multiple; m++, exp += exp) {
             renderer.expand = (expand + 3) * exp;
-            for (int i = 0; i < rotations; i++) {
-                pixmap = renderer.drawSplats(voxels, i * iRotations + yaw, pitch, roll, 0, 0, 0, VoxIOExtended.lastMaterials);
-                png.write(Gdx.files.local((DEBUG ? "out/" + name : name) + "/size" + exp + (smoothing ? "smooth/" : "blocky/") + name + "_angle" + i + ".png"), pixmap);
-                if(normals){
-                    png.write(Gdx.files.local((DEBUG ? "out/" + name : name) + "/size" + exp + (smoothing ? "smooth/normal_" : "blocky/normal_") + name + "_angle" + i + ".png"), renderer.normalMap);
-                }
+            if(bake)
+                renderer.ambient = Tools3D.ambientOcclusion(voxels, exp << 1, null);
+            if(normals && voxelNormals)
+                renderer.voxelNormals = Tools3D.surfaceNormals(voxels, Math.min(exp + 1, 4), null);
+            final String folder = (DEBUG ? "out/" + name : name) + "/size" + exp + (smoothing ? "smooth/" : "blocky/");
+            if(atlas) {
+                SpriteSheet sheet = new SpriteSheet();
+                sheet.dedupe = dedupe;
+                renderAngles(rotations, iRotations, 0f, (i, r) -> sheet.add(i, name + "_angle" + i, r.pixmap, normals ? r.normalMap : null));
+                sheet.write(png, Gdx.files.local(folder + name + "_atlas.png"), Gdx.files.local(folder + "normal_" + name + "_atlas.png"),
+                        Gdx.files.local(folder + name + "_atlas.json"));
+                sheet.dispose();
             }
-            if(fps != 0){
-                Array<Pixmap> pm = new Array<>(128);
-                for (int i = 0; i < 128; i++) {
-                    pixmap = renderer.drawSplats(voxels, i * 0x1p-7f + 0.125f + yaw, pitch, roll, 0, 0, 0, VoxIOExtended.lastMaterials);
-                    Pixmap p = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), pixmap.getFormat());
-                    p.drawPixmap(pixmap, 0, 0);
-                    pm.add(p);
-                }
+            else if(crop != 0) {
+                writeCropped(folder);
+            }
+            else {
+                renderAngles(rotations, iRotations, 0f, (i, r) -> {
+                    png.write(Gdx.files.local(folder + name + "_angle" + i + ".png"), r.pixmap);
+                    if(normals){
+                        png.write(Gdx.files.local(folder + "normal_" + name + "_angle" + i + ".png"), r.normalMap);
+                    }
+                });
+            }
+            if(fps != 0 && stream != null){
+                if(m + 1 == multiple)
+                    streamVideo();
+            }
+            else if(fps != 0 && (gifSamples > 0 || modelPalette)){
+                streamTurntable(Gdx.files.local((DEBUG ? "out/" + name : name) + "/size" + exp + (smoothing ? "smooth/" : "blocky/") + name + "_Turntable.gif"));
+            }
+            else if(fps != 0){
+                Pixmap[] frames = new Pixmap[128];
+                renderAngles(128, 0x1p-7f, 0.125f, (i, r) -> {
+                    Pixmap p = new Pixmap(r.pixmap.getWidth(), r.pixmap.getHeight(), r.pixmap.getFormat());
+                    p.drawPixmap(r.pixmap, 0, 0);
+                    frames[i] = p;
+                });
+                Array<Pixmap> pm = new Array<>(frames);
                 gif.palette.analyze(pm);
                 gif.write(Gdx.files.local((DEBUG ? "out/" + name : name) + "/size" + exp + (smoothing ? "smooth/" : "blocky/") + name + "_Turntable.gif"), pm, fps);
                 for (Pixmap pix : pm) {
@@ -125,31 +487,16 @@ public class SpotVox extends ApplicationAdapter {
             }
             if(m + 1 < multiple)
             {
-                if (smoothing) {
-                    voxels = Tools3D.simpleScale(voxels);
-                } else {
-                    voxels = Tools3D.blockyScale(voxels);
-                }
-                VoxIOExtended.minX <<= 1;
-                VoxIOExtended.minY <<= 1;
-                VoxIOExtended.minZ <<= 1;
-                VoxIOExtended.maxX <<= 1;
-                VoxIOExtended.maxY <<= 1;
-                VoxIOExtended.maxZ <<= 1;
-                renderer = new Renderer(size <<= 1);
-                renderer.palette(VoxIOExtended.lastPalette);
-                renderer.distortHXY = distortHXY;
-                renderer.distortVXY = distortVXY;
-                renderer.distortVZ = distortVZ;
-                renderer.computeNormals = normals;
-                renderer.blurSigma = normalSigma;
-                renderer.lightPower = lightPower;
-                renderer.baseLight = baseLight;
-                renderer.init();
-                renderer.outline = outline;
-                renderer.saturation(saturation);
+                voxels = VoxIOExtended.scaleModel(voxels, smoothing);
+                renderer = makeRenderer(size <<= 1);
             }
         }
+        disposeBatch();
+        png.dispose();
+        if(dedupe)
+            System.out.println("Linked " + png.duplicates + " repeated frames instead of writing them.");
+        if(indexed)
+            System.out.println("Wrote " + png.indexedFrames() + " PNGs with 8-bit palettes.");
         System.out.println("Rendered to files in " + (DEBUG ? "out/" + name : name));
         System.out.println("Finished in " + TimeUtils.timeSinceMillis(startTime) * 0.001 + " seconds.");
         Gdx.app.exit();
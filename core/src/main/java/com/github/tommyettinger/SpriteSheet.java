@@ -0,0 +1,305 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Disposable;
+import com.github.tommyettinger.ds.LongObjectMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Packs many rendered frames, and optionally their normal maps, into one atlas image, with a JSON manifest of where
+ * each frame went. Each frame is trimmed to the smallest rectangle holding all of its non-transparent pixels (in
+ * either the frame or its normal map), and frames are packed onto shelves, tallest first. Normal maps go in a second
+ * atlas with the same layout, so one manifest covers both.
+ * <br>
+ * Coordinates in the manifest are in pixels of the written PNG files, with y going down from the top, the way image
+ * files and most atlas loaders use them; SpotVox writes Pixmaps with their y flipped, and this accounts for that.
+ * For each frame, {@code x, y, w, h} is its rectangle in the atlas, {@code offsetX, offsetY} is where that rectangle
+ * starts in the untrimmed frame, and {@code sourceW, sourceH} is the untrimmed frame's size. Drawing a trimmed frame
+ * at its offset lines it up with every other frame, the same as the untrimmed files did.
+ * <br>
+ * If {@link #dedupe} is true, a trimmed frame with the same pixels as an earlier one isn't stored or packed again;
+ * its manifest entry gives the earlier frame's rectangle, with its own name and offsets.
+ */
+public class SpriteSheet implements Disposable {
+    /**
+     * One trimmed frame; x and y are its place in the atlas, in Pixmap coordinates, once {@link #pack()} has run.
+     */
+    public static final class Frame {
+        public final int index;
+        public final String name;
+        public final int offsetX, offsetY, width, height, sourceWidth, sourceHeight;
+        public int x, y;
+        /**
+         * The earlier frame with the same trimmed pixels, whose place in the atlas this shares, or null.
+         */
+        public Frame alias;
+        private Pixmap pixmap, normalMap;
+        private long check;
+
+        private Frame(int index, String name, int offsetX, int offsetY, int width, int height, int sourceWidth, int sourceHeight) {
+            this.index = index;
+            this.name = name;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.width = width;
+            this.height = height;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+        }
+    }
+
+    /**
+     * How many transparent pixels are left between packed frames.
+     */
+    public final int padding;
+    public final ArrayList<Frame> frames = new ArrayList<>();
+    public int width, height;
+    /**
+     * If true, frames are hashed as they are added, and ones that repeat an earlier frame become its {@link Frame#alias}.
+     */
+    public boolean dedupe;
+    private boolean hasNormals;
+    private final LongObjectMap<Frame> hashed = new LongObjectMap<>();
+    private final long[] hash = new long[2], normalHash = new long[2];
+    private final int[] bounds = new int[4];
+
+    public SpriteSheet() {
+        this(1);
+    }
+
+    public SpriteSheet(int padding) {
+        this.padding = Math.max(0, padding);
+    }
+
+    /**
+     * Trims and copies a frame, so pixmap and normalMap can be reused right away.
+     * @param index where this frame goes in the manifest; frames are listed by index, not in the order they are added
+     * @param name the name for this frame in the manifest
+     * @param pixmap an RGBA8888 Pixmap, such as {@link Renderer#pixmap}
+     * @param normalMap an RGBA8888 Pixmap the same size as pixmap, such as {@link Renderer#normalMap}, or null
+     */
+    public void add(int index, String name, Pixmap pixmap, Pixmap normalMap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        bounds[0] = w;
+        bounds[1] = h;
+        bounds[2] = -1;
+        bounds[3] = -1;
+        opaqueBounds(pixmap, bounds);
+        if(normalMap != null) {
+            hasNormals = true;
+            opaqueBounds(normalMap, bounds);
+        }
+        if(bounds[2] < 0) {
+            frames.add(new Frame(index, name, 0, 0, 0, 0, w, h));
+            return;
+        }
+        final int fw = bounds[2] - bounds[0] + 1, fh = bounds[3] - bounds[1] + 1;
+        Frame frame = new Frame(index, name, bounds[0], h - 1 - bounds[3], fw, fh, w, h);
+        frames.add(frame);
+        if(dedupe) {
+            FrameWriter.hash(pixmap, bounds[0], bounds[1], fw, fh, hash);
+            if(normalMap != null) {
+                FrameWriter.hash(normalMap, bounds[0], bounds[1], fw, fh, normalHash);
+                hash[0] = hash[0] * 0xD1B54A32D192ED03L + normalHash[0];
+                hash[1] = hash[1] * 0xE95E1DD17D35800DL + normalHash[1];
+            }
+            final Frame first = hashed.get(hash[0]);
+            if(first == null)
+                hashed.put(hash[0], frame);
+            else if(first.check == hash[1] && first.width == fw && first.height == fh
+                    && (first.normalMap == null) == (normalMap == null)) {
+                frame.alias = first;
+                return;
+            }
+            frame.check = hash[1];
+        }
+        frame.pixmap = crop(pixmap, bounds[0], bounds[1], fw, fh);
+        if(normalMap != null)
+            frame.normalMap = crop(normalMap, bounds[0], bounds[1], fw, fh);
+    }
+
+    /**
+     * Grows bounds (minX, minY, maxX, maxY, in Pixmap coordinates) to hold every pixel of pixmap with non-zero alpha.
+     * Start with {width, height, -1, -1} to get just the bounds of pixmap; maxX stays -1 if it is fully transparent.
+     */
+    static void opaqueBounds(Pixmap pixmap, int[] bounds) {
+        final ByteBuffer pixels = pixmap.getPixels();
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        for (int y = 0, i = 3; y < h; y++) {
+            for (int x = 0; x < w; x++, i += 4) {
+                if(pixels.get(i) != 0) {
+                    if(x < bounds[0]) bounds[0] = x;
+                    if(x > bounds[2]) bounds[2] = x;
+                    if(y < bounds[1]) bounds[1] = y;
+                    if(y > bounds[3]) bounds[3] = y;
+                }
+            }
+        }
+    }
+
+    static Pixmap crop(Pixmap pixmap, int x, int y, int w, int h) {
+        Pixmap p = new Pixmap(w, h, pixmap.getFormat());
+        p.setBlending(Pixmap.Blending.None);
+        p.drawPixmap(pixmap, x, y, w, h, 0, 0, w, h);
+        return p;
+    }
+
+    /**
+     * Gets the smallest rectangle that holds every non-empty frame, in the same file coordinates as each frame's
+     * offsets. Drawing each frame into it with {@link #draw(Frame, boolean, int[])} keeps every frame lined up.
+     * @return {offsetX, offsetY, width, height}; 1 by 1 at 0,0 if every frame is empty
+     */
+    public int[] union() {
+        int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+        for (Frame f : frames) {
+            if(f.width == 0) continue;
+            x0 = Math.min(x0, f.offsetX);
+            y0 = Math.min(y0, f.offsetY);
+            x1 = Math.max(x1, f.offsetX + f.width);
+            y1 = Math.max(y1, f.offsetY + f.height);
+        }
+        if(x1 < x0)
+            return new int[]{0, 0, 1, 1};
+        return new int[]{x0, y0, x1 - x0, y1 - y0};
+    }
+
+    /**
+     * Draws one trimmed frame into a new Pixmap the size of region, where it was in the untrimmed frame.
+     * @param frame one of {@link #frames}
+     * @param normals if true, draws the frame's normal map instead, which may be fully transparent if it had none
+     * @param region {offsetX, offsetY, width, height} in file coordinates, such as from {@link #union()}
+     * @return a new Pixmap, which the caller must dispose
+     */
+    public Pixmap draw(Frame frame, boolean normals, int[] region) {
+        Pixmap p = new Pixmap(region[2], region[3], Pixmap.Format.RGBA8888);
+        p.setBlending(Pixmap.Blending.None);
+        final Frame source = frame.alias == null ? frame : frame.alias;
+        final Pixmap from = normals ? source.normalMap : source.pixmap;
+        // file rows go down from the top, and Pixmap rows are written flipped, so this measures from the bottom
+        if(from != null)
+            p.drawPixmap(from, frame.offsetX - region[0], region[1] + region[3] - frame.offsetY - frame.height);
+        return p;
+    }
+
+    /**
+     * Places every frame, tallest first, in rows no wider than about the square root of their total area (or the
+     * widest frame, if that is wider), and sets {@link #width} and {@link #height} to fit. Each alias is given the
+     * place of the frame it repeats.
+     */
+    public void pack() {
+        ArrayList<Frame> order = new ArrayList<>(frames.size());
+        for (Frame f : frames) {
+            if(f.alias == null) order.add(f);
+        }
+        order.sort(Comparator.comparingInt((Frame f) -> -f.height).thenComparingInt(f -> -f.width).thenComparingInt(f -> f.index));
+        long area = 0;
+        int widest = 1;
+        for (Frame f : order) {
+            area += (long) (f.width + padding) * (f.height + padding);
+            widest = Math.max(widest, f.width);
+        }
+        final int limit = Math.max(widest, (int) Math.ceil(Math.sqrt(area)));
+        int x = 0, y = 0, shelf = 0;
+        width = 1;
+        for (Frame f : order) {
+            if(f.width == 0) continue;
+            if(x > 0 && x + f.width > limit) {
+                x = 0;
+                y += shelf + padding;
+                shelf = 0;
+            }
+            f.x = x;
+            f.y = y;
+            x += f.width + padding;
+            shelf = Math.max(shelf, f.height);
+            width = Math.max(width, f.x + f.width);
+        }
+        height = Math.max(1, y + shelf);
+        for (Frame f : frames) {
+            if(f.alias != null) {
+                f.x = f.alias.x;
+                f.y = f.alias.y;
+            }
+        }
+        frames.sort(Comparator.comparingInt(f -> f.index));
+    }
+
+    /**
+     * Draws every packed frame into a new Pixmap that is {@link #width} by {@link #height}.
+     * @param normals if true, draws the normal maps instead of the frames
+     * @return a new Pixmap, which the caller must dispose
+     */
+    public Pixmap draw(boolean normals) {
+        Pixmap atlas = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        atlas.setBlending(Pixmap.Blending.None);
+        for (Frame f : frames) {
+            final Pixmap p = normals ? f.normalMap : f.pixmap;
+            if(p != null)
+                atlas.drawPixmap(p, f.x, f.y);
+        }
+        return atlas;
+    }
+
+    /**
+     * Packs the frames and writes the atlas, the normal-map atlas if any frame had one, and the manifest.
+     * @param writer writes the atlas images; must flip y, as SpotVox's does
+     * @param image where to write the atlas PNG
+     * @param normalImage where to write the normal-map atlas PNG; only used if any frame had a normal map
+     * @param manifest where to write the JSON manifest
+     */
+    public void write(FrameWriter writer, FileHandle image, FileHandle normalImage, FileHandle manifest) {
+        pack();
+        Pixmap atlas = draw(false);
+        writer.write(image, atlas);
+        atlas.dispose();
+        if(hasNormals) {
+            atlas = draw(true);
+            writer.write(normalImage, atlas);
+            atlas.dispose();
+        }
+        manifest.writeString(manifest(image.name(), hasNormals ? normalImage.name() : null), false, "UTF-8");
+    }
+
+    /**
+     * Gets the JSON manifest for the packed frames, naming the given image files.
+     * @param image the file name of the atlas
+     * @param normalImage the file name of the normal-map atlas, or null if there isn't one
+     */
+    public String manifest(String image, String normalImage) {
+        StringBuilder sb = new StringBuilder(64 + frames.size() * 128);
+        sb.append("{\"image\":\"").append(image).append('"');
+        if(normalImage != null)
+            sb.append(",\"normals\":\"").append(normalImage).append('"');
+        sb.append(",\"width\":").append(width).append(",\"height\":").append(height).append(",\"frames\":[");
+        for (int i = 0; i < frames.size(); i++) {
+            final Frame f = frames.get(i);
+            sb.append(i == 0 ? "\n" : ",\n").append("{\"name\":\"").append(f.name)
+                    .append("\",\"x\":").append(f.x)
+                    .append(",\"y\":").append(f.width == 0 ? 0 : height - f.y - f.height)
+                    .append(",\"w\":").append(f.width).append(",\"h\":").append(f.height)
+                    .append(",\"offsetX\":").append(f.offsetX).append(",\"offsetY\":").append(f.offsetY)
+                    .append(",\"sourceW\":").append(f.sourceWidth).append(",\"sourceH\":").append(f.sourceHeight)
+                    .append('}');
+        }
+        return sb.append("\n]}\n").toString();
+    }
+
+    /**
+     * Frees every trimmed frame and empties this sheet, so it can be used for another set of frames.
+     */
+    @Override
+    public void dispose() {
+        for (Frame f : frames) {
+            if(f.pixmap != null) f.pixmap.dispose();
+            if(f.normalMap != null) f.normalMap.dispose();
+        }
+        frames.clear();
+        hashed.clear();
+        hasNormals = false;
+        width = height = 0;
+    }
+}
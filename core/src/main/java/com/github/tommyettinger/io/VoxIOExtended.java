@@ -303,6 +303,85 @@ public class VoxIOExtended {
         return model;
     }
 
+    /**
+     * Places every shape in {@code model} into one cube-shaped grid, using each shape's transform to position it. This
+     * shifts {@link #minX}, {@link #minY}, and {@link #minZ} so they are never negative, and adjusts the max bounds to
+     * match. If {@code size} is negative, the smallest cube that fits every shape is used.
+     * @param model a VoxModel just read by {@link #readVox(LittleEndianDataInputStream)}
+     * @param size the width, height, and depth of the grid to return, or -1 to calculate it
+     * @return a new 3D byte array containing every shape in model
+     */
+    public static byte[][][] mergeModel(VoxModel model, int size) {
+        int xChange = 0, yChange = 0, zChange = -minZ;
+        if(minX < 0) {
+            xChange = -minX;
+            maxX += xChange;
+            minX = 0;
+        }
+        if(minY < 0) {
+            yChange = -minY;
+            maxY += yChange;
+            minY = 0;
+        }
+
+        if(size < 0) {
+            size = 1;
+            for(GroupChunk gc : model.groupChunks.values()) {
+                for (int ch : gc.childIds) {
+                    TransformChunk tc = model.transformChunks.get(ch);
+                    if (tc != null) {
+                        for (ShapeModel sm : model.shapeChunks.get(tc.childId).models) {
+                            byte[][][] g = model.grids.get(sm.id);
+                            size = Math.max(size, Math.round(tc.translation.x + g.length + xChange));
+                            size = Math.max(size, Math.round(tc.translation.y + g[0].length + yChange));
+                            size = Math.max(size, Math.round(tc.translation.z + g[0][0].length + zChange));
+                        }
+                    }
+                }
+            }
+        }
+
+        byte[][][] voxels = new byte[size][size][size];
+        for(GroupChunk gc : model.groupChunks.values()) {
+            for (int ch : gc.childIds) {
+                TransformChunk tc = model.transformChunks.get(ch);
+                if (tc != null) {
+                    for (ShapeModel sm : model.shapeChunks.get(tc.childId).models) {
+                        byte[][][] g = model.grids.get(sm.id);
+                        Tools3D.translateCopyInto(g, voxels, Math.round(tc.translation.x + xChange), Math.round(tc.translation.y + yChange), Math.round(tc.translation.z + zChange));
+                    }
+                }
+            }
+        }
+        maxZ += zChange;
+        minZ = 0;
+        return voxels;
+    }
+
+    /**
+     * Doubles the size of a merged model on each axis, only working inside the area given by {@link #minX},
+     * {@link #maxX}, and the other bounds, then sets those bounds to the tight bounds of the scaled model.
+     * @param voxels a cube-shaped 3D byte array, as returned by {@link #mergeModel(VoxModel, int)}; will not be modified
+     * @param smooth if true, uses {@link Tools3D#simpleScaleParallel(byte[][][], byte[][][], byte[][][], byte[][][], int[])},
+     *               otherwise uses {@link Tools3D#blockyScale(byte[][][], byte[][][], int[])}
+     * @return a new 3D byte array twice as large on each axis as voxels
+     */
+    public static byte[][][] scaleModel(byte[][][] voxels, boolean smooth) {
+        byte[][][] result = new byte[voxels.length << 1][voxels[0].length << 1][voxels[0][0].length << 1];
+        int[] bounds = {minX, minY, minZ, maxX, maxY, maxZ};
+        if(smooth)
+            Tools3D.simpleScaleParallel(voxels, result, null, null, bounds);
+        else
+            Tools3D.blockyScale(voxels, result, bounds);
+        minX = bounds[0];
+        minY = bounds[1];
+        minZ = bounds[2];
+        maxX = bounds[3];
+        maxY = bounds[4];
+        maxZ = bounds[5];
+        return result;
+    }
+
     private static void writeInt(DataOutputStream bin, int value) throws IOException
     {
         bin.writeInt(Integer.reverseBytes(value));
@@ -0,0 +1,99 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameStreamTest {
+    @BeforeAll
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    /**
+     * Raw RGBA frames should be the Pixmap's bytes with the rows flipped, one frame after another, and a frame of a
+     * different size should be refused.
+     */
+    @Test
+    public void rawFramesAreFlippedPixels() {
+        final int w = 13, h = 7, frames = 3;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameStream stream = new FrameStream(bytes, false, 30);
+        Pixmap pixmap = new Pixmap(w, h, Pixmap.Format.RGBA8888);
+        Pixmap other = new Pixmap(w, h + 1, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        try {
+            for (int i = 0; i < frames; i++) {
+                for (int x = 0; x < w; x++) {
+                    for (int y = 0; y < h; y++) {
+                        pixmap.drawPixel(x, y, x * 0x9E3779B9 ^ y * 0x7F4A7C15 ^ i);
+                    }
+                }
+                stream.write(pixmap);
+            }
+            assertThrows(GdxRuntimeException.class, () -> stream.write(other));
+            stream.dispose();
+            final byte[] out = bytes.toByteArray();
+            assertEquals(frames * w * h * 4, out.length);
+            for (int i = 0, b = 0; i < frames; i++) {
+                for (int y = h - 1; y >= 0; y--) {
+                    for (int x = 0; x < w; x++, b += 4) {
+                        final int color = (out[b] & 255) << 24 | (out[b + 1] & 255) << 16 | (out[b + 2] & 255) << 8 | out[b + 3] & 255;
+                        assertEquals(x * 0x9E3779B9 ^ y * 0x7F4A7C15 ^ i, color, "frame " + i + " at " + x + "," + y);
+                    }
+                }
+            }
+        } finally {
+            pixmap.dispose();
+            other.dispose();
+        }
+    }
+
+    /**
+     * A Y4M stream should have one header with the size and frame rate, then a FRAME line and three full planes per
+     * frame, with white at the top of the limited luma range and transparent pixels as black.
+     */
+    @Test
+    public void y4mHasHeaderAndPlanes() {
+        final int w = 5, h = 4;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameStream stream = new FrameStream(bytes, true, 24);
+        Pixmap pixmap = new Pixmap(w, h, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        try {
+            pixmap.setColor(-1);
+            pixmap.fill();
+            // the last Pixmap row is the first row in the stream; its first pixel is transparent white
+            pixmap.drawPixel(0, h - 1, 0xFFFFFF00);
+            stream.write(pixmap);
+            stream.write(pixmap);
+            stream.dispose();
+        } finally {
+            pixmap.dispose();
+        }
+        final byte[] out = bytes.toByteArray();
+        final String header = "YUV4MPEG2 W5 H4 F24:1 Ip A1:1 C444\n", frame = "FRAME\n";
+        final int frameLength = frame.length() + w * h * 3;
+        assertEquals(header.length() + 2 * frameLength, out.length);
+        assertEquals(header, new String(out, 0, header.length(), StandardCharsets.US_ASCII));
+        for (int f = 0; f < 2; f++) {
+            final int start = header.length() + f * frameLength;
+            assertEquals(frame, new String(out, start, frame.length(), StandardCharsets.US_ASCII));
+            final int luma = start + frame.length();
+            assertEquals(16, out[luma] & 255);
+            for (int i = 1; i < w * h; i++) {
+                assertEquals(235, out[luma + i] & 255);
+            }
+            for (int i = 0; i < w * h * 2; i++) {
+                assertEquals(128, out[luma + w * h + i] & 255);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameWriterTest {
+    @BeforeAll
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    /**
+     * Writing in the background should give the same files as writing right away, even when the source Pixmap is
+     * drawn over as soon as each write returns, and when frames change size partway through.
+     */
+    @Test
+    public void backgroundMatchesImmediate(@TempDir File dir) throws IOException {
+        final int frames = 12;
+        for (int threads : new int[]{0, 1, 3}) {
+            FrameWriter writer = new FrameWriter(threads, 2, true);
+            Pixmap small = new Pixmap(37, 23, Pixmap.Format.RGBA8888), large = new Pixmap(64, 80, Pixmap.Format.RGBA8888);
+            try {
+                for (int i = 0; i < frames; i++) {
+                    Pixmap pixmap = i < frames / 2 ? small : large;
+                    for (int x = 0; x < pixmap.getWidth(); x++) {
+                        for (int y = 0; y < pixmap.getHeight(); y++) {
+                            pixmap.drawPixel(x, y, (x * 0x9E3779B9 ^ y * 0x7F4A7C15 ^ i * 0x632BE5AB) | 0xFF);
+                        }
+                    }
+                    writer.write(new FileHandle(new File(dir, threads + "/frame" + i + ".png")), pixmap);
+                }
+                writer.finish();
+            } finally {
+                writer.dispose();
+                small.dispose();
+                large.dispose();
+            }
+        }
+        for (int i = 0; i < frames; i++) {
+            byte[] expected = Files.readAllBytes(new File(dir, "0/frame" + i + ".png").toPath());
+            assertArrayEquals(expected, Files.readAllBytes(new File(dir, "1/frame" + i + ".png").toPath()), "frame " + i);
+            assertArrayEquals(expected, Files.readAllBytes(new File(dir, "3/frame" + i + ".png").toPath()), "frame " + i);
+        }
+    }
+
+    /**
+     * Writing a rectangle of a Pixmap should give the same file as cropping it first, whether or not in the background.
+     */
+    @Test
+    public void regionMatchesCrop(@TempDir File dir) throws IOException {
+        Pixmap pixmap = new Pixmap(57, 41, Pixmap.Format.RGBA8888);
+        Pixmap crop = new Pixmap(20, 13, Pixmap.Format.RGBA8888);
+        try {
+            for (int x = 0; x < pixmap.getWidth(); x++) {
+                for (int y = 0; y < pixmap.getHeight(); y++) {
+                    pixmap.drawPixel(x, y, (x * 0x9E3779B9 ^ y * 0x7F4A7C15) | 0xFF);
+                }
+            }
+            crop.setBlending(Pixmap.Blending.None);
+            crop.drawPixmap(pixmap, -11, -25);
+            FrameWriter immediate = new FrameWriter(0, 1, true);
+            immediate.write(new FileHandle(new File(dir, "expected.png")), crop);
+            immediate.dispose();
+            for (int threads : new int[]{0, 2}) {
+                FrameWriter writer = new FrameWriter(threads, 2, true);
+                writer.write(new FileHandle(new File(dir, threads + ".png")), pixmap, 11, 25, 20, 13);
+                writer.dispose();
+            }
+        } finally {
+            pixmap.dispose();
+            crop.dispose();
+        }
+        byte[] expected = Files.readAllBytes(new File(dir, "expected.png").toPath());
+        assertArrayEquals(expected, Files.readAllBytes(new File(dir, "0.png").toPath()));
+        assertArrayEquals(expected, Files.readAllBytes(new File(dir, "2.png").toPath()));
+    }
+
+    /**
+     * With dedupe on, repeated frames should not be encoded again, but should still end up as files with the same
+     * bytes as if they had been, while a frame that differs in a single pixel is still written on its own.
+     */
+    @Test
+    public void duplicatesAreLinked(@TempDir File dir) throws IOException {
+        final int frames = 9;
+        for (int threads : new int[]{0, 2}) {
+            for (boolean dedupe : new boolean[]{false, true}) {
+                FrameWriter writer = new FrameWriter(threads, 2, true);
+                writer.dedupe = dedupe;
+                Pixmap pixmap = new Pixmap(30, 21, Pixmap.Format.RGBA8888);
+                pixmap.setBlending(Pixmap.Blending.None);
+                try {
+                    for (int i = 0; i < frames; i++) {
+                        for (int x = 0; x < pixmap.getWidth(); x++) {
+                            for (int y = 0; y < pixmap.getHeight(); y++) {
+                                pixmap.drawPixel(x, y, (x * 0x9E3779B9 ^ y * 0x7F4A7C15 ^ i % 3 * 0x632BE5AB) | 0xFF);
+                            }
+                        }
+                        if(i == 7) pixmap.drawPixel(29, 20, 0);
+                        writer.write(new FileHandle(new File(dir, threads + "/" + dedupe + "/frame" + i + ".png")), pixmap);
+                    }
+                    writer.finish();
+                    // frames 0, 1, 2, and 7 are new; 7 repeats 1 except in one pixel
+                    assertEquals(dedupe ? frames - 4 : 0, writer.duplicates);
+                } finally {
+                    writer.dispose();
+                    pixmap.dispose();
+                }
+            }
+        }
+        for (int i = 0; i < frames; i++) {
+            byte[] expected = Files.readAllBytes(new File(dir, "0/false/frame" + i + ".png").toPath());
+            assertArrayEquals(expected, Files.readAllBytes(new File(dir, "0/true/frame" + i + ".png").toPath()), "frame " + i);
+            assertArrayEquals(expected, Files.readAllBytes(new File(dir, "2/true/frame" + i + ".png").toPath()), "frame " + i);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedPNGTest {
+    @BeforeAll
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    /**
+     * A frame with exactly 256 colors, some transparent with different RGB values and some partly transparent, should
+     * read back exactly as it was, flipped the same way FastPNG flips; one more color should make it refuse to write.
+     */
+    @Test
+    public void roundTripsUpTo256Colors(@TempDir File dir) {
+        final int w = 37, h = 29;
+        Pixmap pixmap = new Pixmap(w, h, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        IndexedPNG png = new IndexedPNG();
+        try {
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    final int c = (x * 7 + y * 3) % 256;
+                    pixmap.drawPixel(x, y, c * 0x9E3779B9 & 0xFFFFFF00 | (c < 12 ? 0 : c < 20 ? 0x80 : 0xFF));
+                }
+            }
+            FileHandle file = new FileHandle(new File(dir, "indexed.png"));
+            assertTrue(png.write(file, pixmap));
+            Pixmap read = new Pixmap(file);
+            try {
+                assertEquals(w, read.getWidth());
+                assertEquals(h, read.getHeight());
+                for (int x = 0; x < w; x++) {
+                    for (int y = 0; y < h; y++) {
+                        assertEquals(pixmap.getPixel(x, h - 1 - y), read.getPixel(x, y), "at " + x + "," + y);
+                    }
+                }
+            } finally {
+                read.dispose();
+            }
+            pixmap.drawPixel(0, 0, 0x12345678);
+            FileHandle over = new FileHandle(new File(dir, "over.png"));
+            assertFalse(png.write(over, pixmap));
+            assertFalse(over.exists());
+        } finally {
+            png.dispose();
+            pixmap.dispose();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.github.tommyettinger.colorful.oklab.ColorTools;
+import com.github.tommyettinger.digital.TrigTools;
+import com.github.tommyettinger.ds.IntObjectMap;
+import com.github.tommyettinger.io.VoxIOExtended;
+import com.github.tommyettinger.io.VoxModel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Renders every model in {@code vox/} in a variety of configurations and compares a hash of the output pixels with
+ * the hash recorded in {@code core/src/test/resources/golden/render-hashes.txt}. Each case also has a budget for how
+ * many bytes it may allocate and how long it may take, relative to what was recorded alongside the hash.
+ * <br>
+ * To record new golden values after an intentional change to output, run
+ * {@code ./gradlew :core:test -PupdateGolden=true}. A case without a recorded value fails, as does every case if the
+ * file has no values at all, so the checks can't silently go missing. The hashes depend on how
+ * colorful and digital round their color and trigonometry math, so the file records those libraries' versions, and
+ * every case fails with a request to re-record if they differ from the versions on the test classpath.
+ * <br>
+ * The allocation budget can be changed with {@code -PallocBudget=1.5}, or turned off by setting it to 0. Times are
+ * compared after scaling by a calibration render that runs in the same JVM before any case, and whose time is
+ * recorded in the file, so a machine twice as slow gets twice the budget. Times on a shared machine still vary, so the
+ * default budget is a loose 3.0 times the recorded time plus {@link #TIME_SLACK}; it can be changed with
+ * {@code -PtimeBudget=5.0}, or turned off with {@code -PtimeBudget=0}.
+ */
+public class RenderRegressionTest {
+    private static final File VOX_DIR = new File("vox");
+    private static final File GOLDEN = new File("core/src/test/resources/golden/render-hashes.txt");
+    private static final boolean UPDATE = Boolean.getBoolean("spotvox.updateGolden");
+    private static final double ALLOC_BUDGET = Double.parseDouble(System.getProperty("spotvox.allocBudget", "1.25"));
+    private static final double TIME_BUDGET = Double.parseDouble(System.getProperty("spotvox.timeBudget", "3.0"));
+    /**
+     * Added to every time budget, in nanoseconds, so the smallest cases don't fail from timer and scheduler noise.
+     */
+    private static final long TIME_SLACK = 50_000_000L;
+    /**
+     * How long {@link #calibrate()} renders for, in nanoseconds; only the second half is timed.
+     */
+    private static final long CALIBRATION_TIME = 2_000_000_000L;
+    /**
+     * Scaled-up renders of models bigger than this would need gigabytes of buffers, so they are only rendered at x1.
+     */
+    static final int MAX_SCALED_SIZE = 128;
+
+    private static final TreeMap<String, long[]> golden = new TreeMap<>();
+    private static boolean changed = false;
+    /**
+     * The colorful and digital versions the golden file was recorded with, and the ones on the classpath now.
+     */
+    private static String recordedLibraries = null, libraries;
+    /**
+     * The time {@link #calibrate()} took when the golden file was recorded, and in this run, in nanoseconds.
+     */
+    private static long recordedCalibration = 0L, calibration;
+
+    /**
+     * One render configuration: a model, an edge mode, how many times it is doubled in size (and whether that is
+     * smooth or blocky), the normal-map blur (negative for no normal map), how many yaw rotations, and a pitch and
+     * roll (in turns) applied to every rotation.
+     */
+    public static final class Case {
+        public final String model, edge;
+        public final int doublings, rotations;
+        public final boolean smooth;
+        public final double normals;
+        public final float pitch, roll;
+
+        public Case(String model, String edge, int doublings, boolean smooth, double normals, int rotations, float pitch, float roll) {
+            this.model = model;
+            this.edge = edge;
+            this.doublings = doublings;
+            this.smooth = smooth;
+            this.normals = normals;
+            this.rotations = rotations;
+            this.pitch = pitch;
+            this.roll = roll;
+        }
+
+        public String key() {
+            return model + '.' + edge + ".x" + (1 << doublings) + (smooth ? "smooth" : "blocky")
+                    + (normals < 0 ? "" : ".normals" + normals) + ".r" + rotations
+                    + (pitch == 0f && roll == 0f ? "" : ".p" + pitch + ".q" + roll);
+        }
+
+        @Override
+        public String toString() {
+            return key();
+        }
+    }
+
+    public static List<Case> cases() {
+        List<Case> cases = new ArrayList<>();
+        String[] files = VOX_DIR.list((dir, name) -> name.endsWith(".vox"));
+        if(files == null) return cases;
+        Arrays.sort(files);
+        for (String file : files) {
+            String model = file.substring(0, file.length() - 4);
+            for (String edge : new String[]{"none", "partial", "light", "heavy", "block", "wire"}) {
+                cases.add(new Case(model, edge, 0, true, -1.0, 8, 0f, 0f));
+            }
+            cases.add(new Case(model, "light", 0, true, 0.9, 4, 0f, 0f));
+            cases.add(new Case(model, "light", 0, true, 0.0, 4, 0f, 0f));
+            cases.add(new Case(model, "heavy", 0, true, -1.0, 4, 0.0625f, 0.03125f));
+            cases.add(new Case(model, "light", 1, true, 0.9, 4, 0f, 0f));
+            cases.add(new Case(model, "block", 1, false, -1.0, 4, 0f, 0f));
+        }
+        return cases;
+    }
+
+    @BeforeAll
+    public static void loadGolden() throws IOException {
+        GdxNativesLoader.load();
+        golden.clear();
+        libraries = libraries();
+        calibration = UPDATE || TIME_BUDGET > 0 ? calibrate() : 0L;
+        if(!GOLDEN.exists()) return;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(GOLDEN), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if(line.startsWith("# libraries "))
+                    recordedLibraries = line.substring(12);
+                else if(line.startsWith("# calibration "))
+                    recordedCalibration = Long.parseLong(line.substring(14));
+                if(line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split(" ");
+                golden.put(parts[0], new long[]{Long.parseUnsignedLong(parts[1], 16), Long.parseLong(parts[2]), Long.parseLong(parts[3])});
+            }
+        }
+    }
+
+    @AfterAll
+    public static void saveGolden() throws IOException {
+        if(!changed) return;
+        GOLDEN.getParentFile().mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(GOLDEN), StandardCharsets.UTF_8)) {
+            writer.write("# case-key pixel-hash allocated-bytes nanoseconds\n");
+            writer.write("# Recorded by ./gradlew :core:test -PupdateGolden=true ; see RenderRegressionTest.\n");
+            writer.write("# libraries " + libraries + '\n');
+            writer.write("# calibration " + calibration + '\n');
+            for (Map.Entry<String, long[]> e : golden.entrySet()) {
+                writer.write(e.getKey() + ' ' + Long.toHexString(e.getValue()[0]) + ' ' + e.getValue()[1] + ' ' + e.getValue()[2] + '\n');
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("cases")
+    public void render(Case c) throws IOException {
+        byte[][][] voxels = load(c.model);
+        Assumptions.assumeTrue(c.doublings == 0 || voxels.length <= MAX_SCALED_SIZE, "model too large to scale up");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocStart = threads.getCurrentThreadAllocatedBytes();
+        long timeStart = System.nanoTime();
+        long hash = render(voxels, c);
+        long time = System.nanoTime() - timeStart;
+        long alloc = threads.getCurrentThreadAllocatedBytes() - allocStart;
+
+        String key = c.key();
+        long[] recorded = golden.get(key);
+        if(UPDATE) {
+            golden.put(key, new long[]{hash, alloc, time});
+            changed = true;
+            return;
+        }
+        assertFalse(golden.isEmpty(), "no golden values recorded in " + GOLDEN + "; record them with -PupdateGolden=true");
+        assertEquals(recordedLibraries, libraries, "golden values were recorded with other library versions; re-record with -PupdateGolden=true");
+        assertNotNull(recorded, "no golden value recorded for " + key + "; re-record with -PupdateGolden=true");
+        assertEquals(Long.toHexString(recorded[0]), Long.toHexString(hash), "pixels changed for " + key);
+        if(ALLOC_BUDGET > 0)
+            assertTrue(alloc <= recorded[1] * ALLOC_BUDGET,
+                    key + " allocated " + alloc + " bytes; budget is " + (long) (recorded[1] * ALLOC_BUDGET));
+        if(TIME_BUDGET > 0 && recordedCalibration > 0) {
+            long budget = (long) (recorded[2] * TIME_BUDGET * calibration / recordedCalibration) + TIME_SLACK;
+            assertTrue(time <= budget,
+                    key + " took " + time / 1000000 + " ms; budget is " + budget / 1000000 + " ms");
+        }
+    }
+
+    /**
+     * Gets the versions of the libraries whose math decides the rendered pixels, from their jar manifests.
+     */
+    private static String libraries() {
+        return "colorful " + ColorTools.class.getPackage().getImplementationVersion()
+                + " digital " + TrigTools.class.getPackage().getImplementationVersion();
+    }
+
+    /**
+     * Times a fixed render of a generated sphere, taking the fastest of several runs after warming up, so that case
+     * times can be compared between machines and runs. This also warms up the renderer before the first case.
+     */
+    private static long calibrate() {
+        final int size = 40;
+        byte[][][] voxels = new byte[size][size][size];
+        final float center = (size - 1) * 0.5f, radius = size * 0.5f - 2f;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (int z = 0; z < size; z++) {
+                    float dx = x - center, dy = y - center, dz = z - center;
+                    if(dx * dx + dy * dy + dz * dz <= radius * radius)
+                        voxels[x][y][z] = (byte) (1 + z * 6 / size);
+                }
+            }
+        }
+        IntObjectMap<VoxMaterial> materials = new IntObjectMap<>();
+        Renderer renderer = new Renderer(size);
+        renderer.palette(VoxIOExtended.defaultPalette);
+        renderer.init();
+        renderer.outline = SpotVox.edgeMode("light");
+        renderer.saturation(0f);
+        renderer.expand = 3;
+        long best = Long.MAX_VALUE;
+        try {
+            // the first runs are interpreted or only partly compiled, so only count runs after a second of warmup
+            for (long begin = System.nanoTime(), start = begin, end; start - begin < CALIBRATION_TIME; start = end) {
+                for (int i = 0; i < 8; i++) {
+                    renderer.drawSplats(voxels, i * 0.125f, 0f, 0f, 0, 0, 0, materials);
+                }
+                end = System.nanoTime();
+                if(start - begin >= CALIBRATION_TIME / 2)
+                    best = Math.min(best, end - start);
+            }
+        } finally {
+            renderer.pixmap.dispose();
+        }
+        return best;
+    }
+
+    /**
+     * Loads a model the same way the command-line tool does, leaving the bounds and palette in VoxIOExtended.
+     */
+    public static byte[][][] load(String model) throws IOException {
+        try (FileInputStream in = new FileInputStream(new File(VOX_DIR, model + ".vox"))) {
+            VoxModel vm = VoxIOExtended.readVox(new LittleEndianDataInputStream(in));
+            assertNotNull(vm, "could not read " + model);
+            return VoxIOExtended.mergeModel(vm, -1);
+        }
+    }
+
+    /**
+     * Follows the steps {@link SpotVox#create()} takes for one scale, and hashes every frame it renders.
+     */
+    private static long render(byte[][][] voxels, Case c) {
+        for (int d = 0; d < c.doublings; d++) {
+            voxels = VoxIOExtended.scaleModel(voxels, c.smooth);
+        }
+        Renderer renderer = new Renderer(voxels.length);
+        renderer.palette(VoxIOExtended.lastPalette);
+        renderer.computeNormals = c.normals >= 0.0;
+        renderer.blurSigma = c.normals;
+        renderer.init();
+        renderer.outline = SpotVox.edgeMode(c.edge);
+        renderer.saturation(0f);
+        renderer.expand = 3 << c.doublings;
+        long hash = 0L;
+        try {
+            for (int i = 0; i < c.rotations; i++) {
+                Pixmap pixmap = renderer.drawSplats(voxels, i / (float) c.rotations, c.pitch, c.roll, 0, 0, 0, VoxIOExtended.lastMaterials);
+                hash = hash(hash, pixmap);
+                if(renderer.computeNormals)
+                    hash = hash(hash, renderer.normalMap);
+            }
+        } finally {
+            renderer.pixmap.dispose();
+            if(renderer.normalMap != null)
+                renderer.normalMap.dispose();
+        }
+        return hash;
+    }
+
+    public static long hash(long hash, Pixmap pixmap) {
+        ByteBuffer pixels = pixmap.getPixels().duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        hash = mix(hash + pixmap.getWidth()) ^ pixmap.getHeight();
+        for (int i = 0, n = pixels.limit() & -8; i < n; i += 8) {
+            hash = mix(hash + pixels.getLong(i));
+        }
+        for (int i = pixels.limit() & -8; i < pixels.limit(); i++) {
+            hash = mix(hash + pixels.get(i));
+        }
+        return hash;
+    }
+
+    private static long mix(long x) {
+        x = (x ^ x >>> 27 ^ 0xDB4F0B9175AE2165L) * 0x3C79AC492BA7B653L;
+        return x ^ x >>> 33;
+    }
+}
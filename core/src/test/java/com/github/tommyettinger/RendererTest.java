@@ -0,0 +1,562 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.github.tommyettinger.ds.IntIntMap;
+import com.github.tommyettinger.ds.IntObjectMap;
+import com.github.tommyettinger.io.VoxIOExtended;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks properties of {@link Renderer} output that should hold for any model, rather than comparing with recorded
+ * hashes the way {@link RenderRegressionTest} does.
+ */
+public class RendererTest {
+    @BeforeAll
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    /**
+     * Loads a model with {@link RenderRegressionTest#load(String)}, skipping the test for models too big to render
+     * more than once per test without gigabytes of buffers.
+     */
+    private static byte[][][] loadSmall(String model) throws IOException {
+        byte[][][] voxels = RenderRegressionTest.load(model);
+        Assumptions.assumeTrue(voxels.length <= RenderRegressionTest.MAX_SCALED_SIZE, model + " is too large");
+        return voxels;
+    }
+
+    @Test
+    public void quarterTurns() {
+        for (int q = -8; q <= 8; q++) {
+            final float turns = q * 0.25f;
+            assertEquals(q & 3, Renderer.quarterTurns(turns));
+            assertEquals(q % 2 == 0 ? ((q & 2) == 0 ? 1f : -1f) : 0f, Renderer.cosTurns(turns));
+            assertEquals(q % 2 == 0 ? 0f : ((q & 2) == 0 ? 1f : -1f), Renderer.sinTurns(turns));
+        }
+        assertEquals(-1, Renderer.quarterTurns(0.125f));
+        assertEquals(-1, Renderer.quarterTurns(Math.nextUp(0.25f)));
+        assertEquals(-1, Renderer.quarterTurns(Float.NaN));
+        assertEquals(Renderer.cos_(0.1f), Renderer.cosTurns(0.1f));
+        assertEquals(Renderer.sin_(0.1f), Renderer.sinTurns(0.1f));
+    }
+
+    /**
+     * A quarter-turn of yaw should splat exactly the same way as a model that was rotated on the grid beforehand. The
+     * renderer turns around the corner-based center of the grid, while {@link Tools3D#orient(byte[][][], int, byte[][][])}
+     * keeps voxels inside the grid, so the pre-rotated model is moved by one voxel on the axes that got reversed.
+     */
+    @ParameterizedTest
+    @MethodSource("com.github.tommyettinger.Tools3DTest#models")
+    public void quarterTurnMatchesRotatedGrid(String model) throws IOException {
+        byte[][][] voxels = loadSmall(model);
+        final int size = voxels.length;
+        VoxIOExtended.minX = VoxIOExtended.minY = VoxIOExtended.minZ = 0;
+        VoxIOExtended.maxX = VoxIOExtended.maxY = VoxIOExtended.maxZ = size - 1;
+        Renderer turned = new Renderer(size), gridTurned = new Renderer(size);
+        for (Renderer r : new Renderer[]{turned, gridTurned}) {
+            r.palette(VoxIOExtended.lastPalette);
+            r.init();
+            r.materialMap = VoxIOExtended.lastMaterials;
+        }
+        try {
+            for (int q = 1; q < 4; q++) {
+                turned.clear();
+                gridTurned.clear();
+                turned.splatOnly(voxels, q * 0.25f, 0f, 0f, 0f, 0f, 0f);
+                gridTurned.splatOnly(Tools3D.orient(voxels, Tools3D.orientation(q, 0, 0, false), null), 0f, 0f, 0f,
+                        q == 1 || q == 2 ? 1f : 0f, q == 2 || q == 3 ? 1f : 0f, 0f);
+                final String message = model + " turned " + q + " quarter-turns";
+                assertArrayEquals(gridTurned.depths, turned.depths, message);
+                assertArrayEquals(gridTurned.lightLevels, turned.lightLevels, message);
+                assertArrayEquals(gridTurned.shadeX, turned.shadeX, message);
+                assertArrayEquals(gridTurned.shadeZ, turned.shadeZ, message);
+            }
+        } finally {
+            turned.pixmap.dispose();
+            gridTurned.pixmap.dispose();
+        }
+    }
+
+    /**
+     * The integer quarter-turn path in splatOnly should fill every buffer exactly as the float projection does, which
+     * {@link Renderer#splatBatch(byte[][][], Renderer[], float[], int, float, float, float, float, float)} always
+     * uses. This is checked at 0, 90, 180, and 270 degrees of yaw, with and without a half-voxel translation and a
+     * quarter-turn of pitch, and with the default distortion as well as other multiples of 0.5.
+     */
+    @ParameterizedTest
+    @MethodSource("com.github.tommyettinger.Tools3DTest#models")
+    public void quarterTurnMatchesFloat(String model) throws IOException {
+        byte[][][] voxels = loadSmall(model);
+        final int size = voxels.length;
+        for (int distort = 0; distort < 2; distort++) {
+            Renderer integer = new Renderer(size), floating = new Renderer(size);
+            for (Renderer r : new Renderer[]{integer, floating}) {
+                if(distort == 1) {
+                    r.distortHXY = 1.5f;
+                    r.distortVXY = 0.5f;
+                    r.distortVZ = 2.5f;
+                }
+                r.palette(VoxIOExtended.lastPalette);
+                r.init();
+                r.materialMap = VoxIOExtended.lastMaterials;
+            }
+            final Renderer[] batch = {floating};
+            try {
+                for (int q = 0; q < 4; q++) {
+                    for (int variant = 0; variant < 2; variant++) {
+                        final float pitch = variant * 0.25f, move = variant * 0.5f;
+                        integer.clear();
+                        floating.clear();
+                        integer.splatOnly(voxels, q * 0.25f, pitch, 0f, move, -move, move);
+                        Renderer.splatBatch(voxels, batch, new float[]{q * 0.25f}, 1, pitch, 0f, move, -move, move);
+                        final String message = model + " turned " + q + " quarter-turns, pitch " + pitch
+                                + ", moved " + move + ", distort " + distort;
+                        assertArrayEquals(floating.depths, integer.depths, message);
+                        assertArrayEquals(floating.voxels, integer.voxels, message);
+                        assertArrayEquals(floating.colorIndices, integer.colorIndices, message);
+                        assertArrayEquals(floating.lightLevels, integer.lightLevels, message);
+                        assertArrayEquals(floating.shadeX, integer.shadeX, message);
+                        assertArrayEquals(floating.shadeZ, integer.shadeZ, message);
+                    }
+                }
+            } finally {
+                integer.pixmap.dispose();
+                floating.pixmap.dispose();
+            }
+        }
+    }
+
+    /**
+     * The fixed-point projection should splat exactly what the float projection does at angles that aren't
+     * quarter-turns, including voxels that land near a rounding boundary, which it hands to the float path. This is
+     * checked at several yaws, with and without pitch, roll, and a translation by multiples of 0.5, for the default
+     * distortion and for factors that are exact in 16.16 fixed point but aren't multiples of 0.5.
+     */
+    @ParameterizedTest
+    @MethodSource("com.github.tommyettinger.Tools3DTest#models")
+    public void fixedPointMatchesFloat(String model) throws IOException {
+        byte[][][] voxels = loadSmall(model);
+        final int size = voxels.length;
+        for (int distort = 0; distort < 3; distort++) {
+            Renderer fixed = new Renderer(size), floating = new Renderer(size);
+            for (Renderer r : new Renderer[]{fixed, floating}) {
+                if(distort == 1) {
+                    r.distortHXY = 1.5f;
+                    r.distortVXY = 0.5f;
+                    r.distortVZ = 2.5f;
+                } else if(distort == 2) {
+                    r.distortHXY = 2.25f;
+                    r.distortVXY = 1.125f;
+                    r.distortVZ = 3.0625f;
+                }
+                r.palette(VoxIOExtended.lastPalette);
+                r.init();
+                r.materialMap = VoxIOExtended.lastMaterials;
+            }
+            fixed.fixedPoint = true;
+            final Renderer[] batch = {floating};
+            try {
+                for (float yaw : new float[]{0.03f, 0.125f, 0.3f, 0.6f}) {
+                    for (int variant = 0; variant < 2; variant++) {
+                        final float pitch = variant * 0.0625f, roll = variant * -0.03125f, move = variant * 1.5f;
+                        fixed.clear();
+                        floating.clear();
+                        fixed.splatOnly(voxels, yaw, pitch, roll, move, -move, 0.5f);
+                        Renderer.splatBatch(voxels, batch, new float[]{yaw}, 1, pitch, roll, move, -move, 0.5f);
+                        final String message = model + " at yaw " + yaw + ", pitch " + pitch + ", roll " + roll
+                                + ", moved " + move + ", distort " + distort;
+                        assertArrayEquals(floating.depths, fixed.depths, message);
+                        assertArrayEquals(floating.voxels, fixed.voxels, message);
+                        assertArrayEquals(floating.colorIndices, fixed.colorIndices, message);
+                        assertArrayEquals(floating.lightLevels, fixed.lightLevels, message);
+                        assertArrayEquals(floating.shadeX, fixed.shadeX, message);
+                        assertArrayEquals(floating.shadeZ, fixed.shadeZ, message);
+                    }
+                }
+            } finally {
+                fixed.pixmap.dispose();
+                floating.pixmap.dispose();
+            }
+        }
+    }
+
+    /**
+     * Rendering several angles in one pass over the model should give the same pixels as rendering each by itself.
+     */
+    @ParameterizedTest
+    @MethodSource("com.github.tommyettinger.Tools3DTest#models")
+    public void batchMatchesSingle(String model) throws IOException {
+        byte[][][] voxels = loadSmall(model);
+        final int size = voxels.length;
+        final float[] yaws = {0f, 0.125f, 0.3f, 0.75f};
+        final float pitch = 0.0625f, roll = 0f;
+        Renderer single = new Renderer(size);
+        Renderer[] batch = new Renderer[yaws.length];
+        single.palette(VoxIOExtended.lastPalette);
+        single.computeNormals = true;
+        single.init();
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new Renderer(size);
+            batch[i].palette(VoxIOExtended.lastPalette);
+            batch[i].computeNormals = true;
+            batch[i].init();
+        }
+        try {
+            Renderer.drawSplatsBatch(voxels, batch, yaws, yaws.length, pitch, roll, VoxIOExtended.lastMaterials);
+            for (int i = 0; i < yaws.length; i++) {
+                single.drawSplats(voxels, yaws[i], pitch, roll, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+                final String message = model + " at yaw " + yaws[i];
+                assertEquals(RenderRegressionTest.hash(0L, single.pixmap), RenderRegressionTest.hash(0L, batch[i].pixmap), message);
+                assertEquals(RenderRegressionTest.hash(0L, single.normalMap), RenderRegressionTest.hash(0L, batch[i].normalMap), message);
+            }
+        } finally {
+            single.pixmap.dispose();
+            single.normalMap.dispose();
+            for (Renderer r : batch) {
+                r.pixmap.dispose();
+                r.normalMap.dispose();
+            }
+        }
+    }
+
+    /**
+     * The deprecated per-cell planes should hold what {@link Renderer#colorIndices} points to after splatting, be
+     * cleared by blit, and not change the pixels drawn.
+     */
+    @ParameterizedTest
+    @MethodSource("com.github.tommyettinger.Tools3DTest#models")
+    @SuppressWarnings("removal")
+    public void legacyPlanesMatchIndices(String model) throws IOException {
+        byte[][][] voxels = loadSmall(model);
+        final int size = voxels.length;
+        Renderer plain = new Renderer(size), legacy = new Renderer(size);
+        legacy.legacyPlanes = true;
+        for (Renderer r : new Renderer[]{plain, legacy}) {
+            r.palette(VoxIOExtended.lastPalette);
+            r.init();
+            r.materialMap = VoxIOExtended.lastMaterials;
+        }
+        assertNull(plain.colorA);
+        try {
+            legacy.splatOnly(voxels, 0.125f, 0.0625f, 0f, 0f, 0f, 0f);
+            for (int x = 0; x < legacy.colorIndices.length; x++) {
+                for (int y = 0; y < legacy.colorIndices[x].length; y++) {
+                    final int index = legacy.colorIndices[x][y] & 255;
+                    assertEquals(index == 0 ? -1f : legacy.paletteL[index], legacy.colorL[x][y]);
+                    assertEquals(index == 0 ? -1f : legacy.paletteA[index], legacy.colorA[x][y]);
+                    assertEquals(index == 0 ? -1f : legacy.paletteB[index], legacy.colorB[x][y]);
+                    assertEquals(index == 0 ? null : legacy.materialMap.get(index), legacy.materials[x][y]);
+                    assertEquals(index == 0, legacy.outlines[x][y] == 0);
+                }
+            }
+            legacy.blit(0.125f, 0.0625f, 0f);
+            plain.drawSplats(voxels, 0.125f, 0.0625f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+            assertEquals(RenderRegressionTest.hash(0L, plain.pixmap), RenderRegressionTest.hash(0L, legacy.pixmap), model);
+            for (int x = 0; x < legacy.colorIndices.length; x++) {
+                for (int y = 0; y < legacy.colorIndices[x].length; y++) {
+                    assertEquals(0, legacy.outlines[x][y]);
+                    assertNull(legacy.materials[x][y]);
+                    assertEquals(-1f, legacy.colorL[x][y]);
+                }
+            }
+        } finally {
+            plain.pixmap.dispose();
+            legacy.pixmap.dispose();
+        }
+    }
+
+    /**
+     * A canvas fitted to the model and angles should show exactly the same pixels as the full canvas does in the same
+     * place, with nothing drawn in the full canvas outside it, for both the float and the quarter-turn projection and
+     * for depth-based normal maps.
+     * The normal maps aren't blurred, because the full canvas's blur can wrap around its edges and the fitted one's
+     * can't.
+     */
+    @ParameterizedTest
+    @MethodSource("com.github.tommyettinger.Tools3DTest#models")
+    public void fitMatchesFullCanvas(String model) throws IOException {
+        byte[][][] voxels = loadSmall(model);
+        final int size = voxels.length;
+        final int[] bounds = {VoxIOExtended.minX, VoxIOExtended.minY, VoxIOExtended.minZ,
+                VoxIOExtended.maxX, VoxIOExtended.maxY, VoxIOExtended.maxZ};
+        for (boolean quarter : new boolean[]{false, true}) {
+            final float[] yaws = quarter ? new float[]{0f, 0.25f, 0.5f} : new float[]{0f, 0.125f, 0.3f};
+            final float pitch = quarter ? 0f : 0.0625f;
+            Renderer full = new Renderer(size), fitted = new Renderer(size);
+            fitted.computeNormals = true;
+            fitted.blurSigma = 0.0;
+            fitted.fit(bounds, yaws, pitch, 0f);
+            assertTrue(fitted.canvasWidth <= fitted.fullWidth() && fitted.canvasHeight <= fitted.fullHeight());
+            for (Renderer r : new Renderer[]{full, fitted}) {
+                r.palette(VoxIOExtended.lastPalette);
+                r.computeNormals = true;
+                r.blurSigma = 0.0;
+                r.init();
+                r.expand = 3;
+            }
+            final int ox = fitted.originX >> fitted.shrink, oy = fitted.originY >> fitted.shrink;
+            try {
+                for (float yaw : yaws) {
+                    full.drawSplats(voxels, yaw, pitch, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+                    fitted.drawSplats(voxels, yaw, pitch, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+                    final String message = model + " at yaw " + yaw + ", pitch " + pitch;
+                    for (int x = 0; x < full.pixmap.getWidth(); x++) {
+                        for (int y = 0; y < full.pixmap.getHeight(); y++) {
+                            final int fx = x - ox, fy = y - oy;
+                            if(fx < 0 || fy < 0 || fx >= fitted.pixmap.getWidth() || fy >= fitted.pixmap.getHeight()) {
+                                assertEquals(0, full.pixmap.getPixel(x, y) & 255, message + " drew outside at " + x + "," + y);
+                                continue;
+                            }
+                            assertEquals(full.pixmap.getPixel(x, y), fitted.pixmap.getPixel(fx, fy), message + " at " + x + "," + y);
+                            if((full.normalMap.getPixel(x, y) & 255) != 0)
+                                assertEquals(full.normalMap.getPixel(x, y), fitted.normalMap.getPixel(fx, fy), message + " normal at " + x + "," + y);
+                        }
+                    }
+                }
+            } finally {
+                for (Renderer r : new Renderer[]{full, fitted}) {
+                    r.pixmap.dispose();
+                    r.normalMap.dispose();
+                }
+            }
+        }
+    }
+
+    /**
+     * A long, thin model seen from a few angles should get a canvas much smaller than the cube it is placed in needs.
+     */
+    @Test
+    public void fitShrinksLongModels() {
+        Renderer renderer = new Renderer(200);
+        renderer.fit(new int[]{0, 90, 90, 199, 109, 109}, new float[]{0f, 0.25f, 0.5f, 0.75f}, 0f, 0f);
+        final long fitted = (long) renderer.canvasWidth * renderer.canvasHeight,
+                full = (long) renderer.fullWidth() * renderer.fullHeight();
+        assertTrue(fitted * 2 < full, fitted + " cells is not much smaller than " + full);
+        assertEquals(0, renderer.originX & (1 << renderer.shrink) - 1);
+        assertEquals(0, renderer.originY & (1 << renderer.shrink) - 1);
+    }
+
+    /**
+     * Makes a copy of voxels that matches itself after {@code quarterTurns} quarter-turns about the renderer's center,
+     * by keeping the highest color index found anywhere in each cell's orbit. The x=0 and y=0 planes are left empty.
+     */
+    private static byte[][][] symmetric(byte[][][] voxels, int quarterTurns) {
+        final int size = voxels.length;
+        byte[][][] sym = new byte[size][size][voxels[0][0].length];
+        for (int x = 1; x < size; x++) {
+            for (int y = 1; y < size; y++) {
+                for (int z = 0; z < sym[x][y].length; z++) {
+                    int best = 0;
+                    for (int t = 0, ox = x, oy = y; t < 4; t += quarterTurns) {
+                        best = Math.max(best, voxels[ox][oy][z] & 255);
+                        for (int q = 0; q < quarterTurns; q++) {
+                            final int nx = size - oy;
+                            oy = ox;
+                            ox = nx;
+                        }
+                    }
+                    sym[x][y][z] = (byte) best;
+                }
+            }
+        }
+        return sym;
+    }
+
+    /**
+     * Frames of a model with yaw symmetry should repeat every time the yaw goes through that symmetry. This only checks
+     * frames at quarter-turns, where the projection is exact; at other angles the sine and cosine tables aren't
+     * exactly periodic, so re-rendered repeats can round a few voxels differently.
+     */
+    @ParameterizedTest
+    @MethodSource("com.github.tommyettinger.Tools3DTest#models")
+    public void yawSymmetryRepeatsFrames(String model) throws IOException {
+        byte[][][] voxels = loadSmall(model);
+        final int size = voxels.length;
+        VoxIOExtended.minX = VoxIOExtended.minY = VoxIOExtended.minZ = 0;
+        VoxIOExtended.maxX = VoxIOExtended.maxY = VoxIOExtended.maxZ = size - 1;
+        Renderer renderer = new Renderer(size);
+        renderer.palette(VoxIOExtended.lastPalette);
+        renderer.computeNormals = true;
+        renderer.init();
+        try {
+            for (int quarterTurns = 1; quarterTurns <= 2; quarterTurns++) {
+                byte[][][] sym = symmetric(voxels, quarterTurns);
+                assertEquals(quarterTurns, Renderer.yawSymmetry(sym), model);
+                renderer.drawSplats(sym, 0f, 0f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+                final long pixels = RenderRegressionTest.hash(0L, renderer.pixmap), normals = RenderRegressionTest.hash(0L, renderer.normalMap);
+                for (int t = quarterTurns; t < 4; t += quarterTurns) {
+                    renderer.drawSplats(sym, t * 0.25f, 0f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+                    final String message = model + " with " + quarterTurns + "-quarter-turn symmetry, turned " + t + " quarter-turns";
+                    assertEquals(pixels, RenderRegressionTest.hash(0L, renderer.pixmap), message);
+                    assertEquals(normals, RenderRegressionTest.hash(0L, renderer.normalMap), message);
+                }
+            }
+        } finally {
+            renderer.pixmap.dispose();
+            renderer.normalMap.dispose();
+        }
+    }
+
+    @Test
+    public void yawSymmetryRejectsAsymmetric() {
+        byte[][][] voxels = new byte[6][6][3];
+        assertEquals(1, Renderer.yawSymmetry(voxels));
+        voxels[2][3][1] = 5;
+        voxels[3][4][1] = 5;
+        voxels[4][3][1] = 5;
+        assertEquals(4, Renderer.yawSymmetry(voxels));
+        voxels[3][2][1] = 5;
+        assertEquals(1, Renderer.yawSymmetry(voxels));
+        voxels[3][4][1] = 6;
+        assertEquals(4, Renderer.yawSymmetry(voxels));
+        voxels[3][2][1] = 6;
+        assertEquals(2, Renderer.yawSymmetry(voxels));
+        voxels[0][3][1] = 1;
+        assertEquals(4, Renderer.yawSymmetry(voxels));
+    }
+
+    /**
+     * Baked ambient light only changes how bright pixels are, so the same pixels should be filled with and without it.
+     */
+    @ParameterizedTest
+    @MethodSource("com.github.tommyettinger.Tools3DTest#models")
+    public void ambientKeepsSilhouette(String model) throws IOException {
+        byte[][][] voxels = loadSmall(model);
+        final int size = voxels.length;
+        Renderer plain = new Renderer(size), baked = new Renderer(size);
+        for (Renderer r : new Renderer[]{plain, baked}) {
+            r.palette(VoxIOExtended.lastPalette);
+            r.init();
+            r.expand = 3;
+        }
+        baked.ambient = Tools3D.ambientOcclusion(voxels, 2, null);
+        try {
+            plain.drawSplats(voxels, 0.125f, 0f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+            baked.drawSplats(voxels, 0.125f, 0f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+            boolean anyDifferent = false;
+            for (int x = 0; x < plain.pixmap.getWidth(); x++) {
+                for (int y = 0; y < plain.pixmap.getHeight(); y++) {
+                    final int a = plain.pixmap.getPixel(x, y), b = baked.pixmap.getPixel(x, y);
+                    assertEquals(a == 0, b == 0, model + " at " + x + "," + y);
+                    anyDifferent |= a != b;
+                }
+            }
+            assertTrue(anyDifferent, model);
+        } finally {
+            plain.pixmap.dispose();
+            baked.pixmap.dispose();
+        }
+    }
+
+    /**
+     * The colors predicted from a model's palette and lighting should cover what is actually drawn: on average,
+     * every drawn pixel should be close to some color in the swatch, the way it would be to a palette analyzed from
+     * the frames themselves.
+     */
+    @ParameterizedTest
+    @MethodSource("com.github.tommyettinger.Tools3DTest#models")
+    public void colorSwatchCoversFrames(String model) throws IOException {
+        byte[][][] voxels = loadSmall(model);
+        final int size = voxels.length;
+        Renderer renderer = new Renderer(size);
+        renderer.palette(VoxIOExtended.lastPalette);
+        renderer.init();
+        renderer.saturation(0f);
+        renderer.expand = 3;
+        Pixmap swatch = renderer.colorSwatch(voxels, VoxIOExtended.lastMaterials, 3);
+        try {
+            IntIntMap nearest = new IntIntMap();
+            double sum = 0.0;
+            int drawn = 0;
+            for (float yaw : new float[]{0.125f, 0.4f}) {
+                renderer.drawSplats(voxels, yaw, 0f, 0f, 0f, 0f, 0f, VoxIOExtended.lastMaterials);
+                for (int x = 0; x < renderer.pixmap.getWidth(); x++) {
+                    for (int y = 0; y < renderer.pixmap.getHeight(); y++) {
+                        final int color = renderer.pixmap.getPixel(x, y);
+                        if((color & 255) == 0) continue;
+                        int best = nearest.getOrDefault(color, -1);
+                        if(best < 0) {
+                            best = Integer.MAX_VALUE;
+                            for (int sx = 0; sx < swatch.getWidth(); sx++) {
+                                for (int sy = 0; sy < swatch.getHeight(); sy++) {
+                                    final int s = swatch.getPixel(sx, sy);
+                                    if((s & 255) == 0) continue;
+                                    final int dr = (color >>> 24) - (s >>> 24), dg = (color >>> 16 & 255) - (s >>> 16 & 255),
+                                            db = (color >>> 8 & 255) - (s >>> 8 & 255);
+                                    best = Math.min(best, dr * dr + dg * dg + db * db);
+                                }
+                            }
+                            nearest.put(color, best);
+                        }
+                        sum += Math.sqrt(best);
+                        drawn++;
+                    }
+                }
+            }
+            assertTrue(drawn > 0, model);
+            assertTrue(sum / drawn < 4.0, model + " is on average " + sum / drawn + " away from the swatch");
+        } finally {
+            swatch.dispose();
+            renderer.pixmap.dispose();
+        }
+    }
+
+    /**
+     * Everything visible on a ball faces the camera, so a normal map made from per-voxel normals should never point
+     * far away from it, and the middle of the ball should point right at it, at any angle. Voxels right on the edge
+     * can point a little away, since their normals are smoothed over a blocky surface.
+     */
+    @Test
+    public void voxelNormalsFaceCamera() {
+        final int size = 32;
+        final float c = (size - 1) * 0.5f;
+        byte[][][] voxels = new byte[size][size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (int z = 0; z < size; z++) {
+                    if((x - c) * (x - c) + (y - c) * (y - c) + (z - c) * (z - c) <= 144f) voxels[x][y][z] = 1;
+                }
+            }
+        }
+        VoxIOExtended.minX = VoxIOExtended.minY = VoxIOExtended.minZ = 0;
+        VoxIOExtended.maxX = VoxIOExtended.maxY = VoxIOExtended.maxZ = size - 1;
+        Renderer renderer = new Renderer(size);
+        renderer.palette(new int[]{0, -1});
+        renderer.computeNormals = true;
+        renderer.init();
+        renderer.voxelNormals = Tools3D.surfaceNormals(voxels, 3, null);
+        IntObjectMap<VoxMaterial> materials = new IntObjectMap<>(1);
+        materials.setDefaultValue(VoxMaterial.DEFAULT_MATERIAL);
+        try {
+            for (float yaw : new float[]{0f, 0.1f, 0.375f}) {
+                renderer.drawSplats(voxels, yaw, 0f, 0f, 0f, 0f, 0f, materials);
+                int drawn = 0, best = 0;
+                for (int x = 0; x < renderer.normalMap.getWidth(); x++) {
+                    for (int y = 0; y < renderer.normalMap.getHeight(); y++) {
+                        final int color = renderer.normalMap.getPixel(x, y);
+                        if((color & 255) == 0) continue;
+                        drawn++;
+                        final int blue = color >>> 8 & 255;
+                        assertTrue(blue >= 96, "normal facing away at " + x + "," + y + " for yaw " + yaw);
+                        best = Math.max(best, blue);
+                    }
+                }
+                assertTrue(drawn > 50, "only " + drawn + " normals drawn for yaw " + yaw);
+                assertTrue(best >= 250, "no normal faces the camera for yaw " + yaw);
+            }
+        } finally {
+            renderer.pixmap.dispose();
+            renderer.normalMap.dispose();
+        }
+    }
+}
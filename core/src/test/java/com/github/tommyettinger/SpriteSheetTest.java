@@ -0,0 +1,177 @@
+package com.github.tommyettinger;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpriteSheetTest {
+    @BeforeAll
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    /**
+     * Every frame, trimmed and packed, should come back out of the atlas exactly as it went in, without overlapping
+     * any other frame, and frames with nothing in them should take no space.
+     */
+    @Test
+    public void packedFramesRoundTrip() {
+        final int count = 20, w = 40, h = 30;
+        Pixmap[] sources = new Pixmap[count];
+        SpriteSheet sheet = new SpriteSheet();
+        try {
+            for (int i = count - 1; i >= 0; i--) {
+                Pixmap p = sources[i] = new Pixmap(w, h, Pixmap.Format.RGBA8888);
+                if(i % 7 == 3) {
+                    sheet.add(i, "empty" + i, p, null);
+                    continue;
+                }
+                final int x0 = i % 5 * 3, y0 = i % 4 * 2, x1 = w - 1 - i % 3 * 4, y1 = h - 1 - i % 6 * 3;
+                for (int x = x0; x <= x1; x++) {
+                    for (int y = y0; y <= y1; y++) {
+                        if((x + y + i) % 3 != 0 || x == x0 || y == y0 || x == x1 || y == y1)
+                            p.drawPixel(x, y, (x * 0x9E3779B9 ^ y * 0x7F4A7C15 ^ i) | 0xFF);
+                    }
+                }
+                sheet.add(i, "frame" + i, p, null);
+            }
+            sheet.pack();
+            Pixmap atlas = sheet.draw(false);
+            try {
+                for (int i = 0; i < count; i++) {
+                    final SpriteSheet.Frame f = sheet.frames.get(i);
+                    assertEquals(i, f.index);
+                    if(i % 7 == 3) {
+                        assertEquals(0, f.width * f.height);
+                        continue;
+                    }
+                    assertTrue(f.x + f.width <= sheet.width && f.y + f.height <= sheet.height);
+                    for (int j = 0; j < i; j++) {
+                        final SpriteSheet.Frame g = sheet.frames.get(j);
+                        assertFalse(g.width > 0 && f.x < g.x + g.width && g.x < f.x + f.width
+                                && f.y < g.y + g.height && g.y < f.y + f.height, f.name + " overlaps " + g.name);
+                    }
+                    // offsetY is measured from the top of the flipped file, so the Pixmap row is found from the bottom
+                    final int top = h - f.offsetY - f.height;
+                    for (int x = 0; x < w; x++) {
+                        for (int y = 0; y < h; y++) {
+                            final boolean inside = x >= f.offsetX && x < f.offsetX + f.width && y >= top && y < top + f.height;
+                            final int expected = sources[i].getPixel(x, y);
+                            if(!inside) assertEquals(0, expected & 255, f.name + " trimmed a pixel at " + x + "," + y);
+                            else assertEquals(expected, atlas.getPixel(f.x + x - f.offsetX, f.y + y - top), f.name + " at " + x + "," + y);
+                        }
+                    }
+                }
+            } finally {
+                atlas.dispose();
+            }
+            assertTrue(sheet.manifest("a.png", null).contains("\"name\":\"frame0\""));
+        } finally {
+            sheet.dispose();
+            for (Pixmap p : sources) {
+                p.dispose();
+            }
+        }
+    }
+
+    /**
+     * Drawing trimmed frames into their union should put every pixel back where it was in the untrimmed frame, shifted
+     * only by the union's offset, and the union should be no bigger than it needs to be.
+     */
+    @Test
+    public void unionKeepsFramesLinedUp() {
+        final int count = 6, w = 50, h = 44;
+        Pixmap[] sources = new Pixmap[count];
+        SpriteSheet sheet = new SpriteSheet();
+        try {
+            for (int i = 0; i < count; i++) {
+                Pixmap p = sources[i] = new Pixmap(w, h, Pixmap.Format.RGBA8888);
+                if(i != 4) {
+                    for (int x = 5 + i * 2; x < 20 + i * 3; x++) {
+                        for (int y = 30 - i * 4; y < 35 - i; y++) {
+                            p.drawPixel(x, y, (x * 0x9E3779B9 ^ y * 0x7F4A7C15 ^ i) | 0xFF);
+                        }
+                    }
+                }
+                sheet.add(i, "frame" + i, p, null);
+            }
+            final int[] region = sheet.union();
+            // x goes from 5 to 19 + 5 * 3, and Pixmap y goes from 30 - 5 * 4 to 34, so file y starts at h - 35
+            assertArrayEquals(new int[]{5, h - 35, 30, 25}, region);
+            final int top = h - region[1] - region[3];
+            for (SpriteSheet.Frame f : sheet.frames) {
+                Pixmap p = sheet.draw(f, false, region);
+                try {
+                    for (int x = 0; x < w; x++) {
+                        for (int y = 0; y < h; y++) {
+                            final int expected = sources[f.index].getPixel(x, y);
+                            if(x < region[0] || x >= region[0] + region[2] || y < top || y >= top + region[3])
+                                assertEquals(0, expected & 255, f.name + " lost a pixel at " + x + "," + y);
+                            else
+                                assertEquals(expected, p.getPixel(x - region[0], y - top), f.name + " at " + x + "," + y);
+                        }
+                    }
+                } finally {
+                    p.dispose();
+                }
+            }
+        } finally {
+            sheet.dispose();
+            for (Pixmap p : sources) {
+                p.dispose();
+            }
+        }
+    }
+
+    /**
+     * Frames that trim to the same pixels should share one place in the atlas, even at different offsets, and still
+     * come back out the same as frames that were packed on their own.
+     */
+    @Test
+    public void dedupeSharesPlaces() {
+        final int count = 8, w = 24, h = 20;
+        Pixmap[] sources = new Pixmap[count];
+        SpriteSheet sheet = new SpriteSheet();
+        sheet.dedupe = true;
+        try {
+            for (int i = 0; i < count; i++) {
+                Pixmap p = sources[i] = new Pixmap(w, h, Pixmap.Format.RGBA8888);
+                // frames 0 and 3 match, and 1, 4, and 6 match but are shifted; the rest are different
+                final int shape = i == 3 ? 0 : i == 4 || i == 6 ? 1 : i, shift = i == 6 ? 3 : 0;
+                for (int x = 2; x < 12 + shape; x++) {
+                    for (int y = 3; y < 15; y++) {
+                        p.drawPixel(x + shift, y + shift, (x * 0x9E3779B9 ^ y * 0x7F4A7C15 ^ shape) | 0xFF);
+                    }
+                }
+                sheet.add(i, "frame" + i, p, null);
+            }
+            sheet.pack();
+            assertSame(sheet.frames.get(0), sheet.frames.get(3).alias);
+            assertSame(sheet.frames.get(1), sheet.frames.get(4).alias);
+            assertSame(sheet.frames.get(1), sheet.frames.get(6).alias);
+            assertNull(sheet.frames.get(7).alias);
+            Pixmap atlas = sheet.draw(false);
+            try {
+                for (SpriteSheet.Frame f : sheet.frames) {
+                    final int top = h - f.offsetY - f.height;
+                    for (int x = 0; x < f.width; x++) {
+                        for (int y = 0; y < f.height; y++) {
+                            assertEquals(sources[f.index].getPixel(f.offsetX + x, top + y), atlas.getPixel(f.x + x, f.y + y),
+                                    f.name + " at " + x + "," + y);
+                        }
+                    }
+                }
+            } finally {
+                atlas.dispose();
+            }
+        } finally {
+            sheet.dispose();
+            for (Pixmap p : sources) {
+                p.dispose();
+            }
+        }
+    }
+}
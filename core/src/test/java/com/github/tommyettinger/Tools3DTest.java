@@ -0,0 +1,474 @@
+package com.github.tommyettinger;
+
+import com.github.tommyettinger.digital.Hasher;
+import com.github.tommyettinger.io.VoxIOExtended;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the faster variants of grid operations in {@link Tools3D} produce exactly what the original, simpler
+ * versions do, using every model in {@code vox/} that is small enough to be quick.
+ */
+public class Tools3DTest {
+    public static List<String> models() {
+        List<String> models = new ArrayList<>();
+        String[] files = new File("vox").list((dir, name) -> name.endsWith(".vox"));
+        if(files == null) return models;
+        Arrays.sort(files);
+        for (String file : files) {
+            models.add(file.substring(0, file.length() - 4));
+        }
+        return models;
+    }
+
+    @ParameterizedTest
+    @MethodSource("models")
+    public void parallelScale(String model) throws IOException {
+        byte[][][] voxels = RenderRegressionTest.load(model);
+        assertArrayEquals(Tools3D.simpleScale(voxels), Tools3D.simpleScaleParallel(voxels));
+        assertArrayEquals(Tools3D.smoothScale(voxels), Tools3D.smoothScaleParallel(voxels));
+    }
+
+    @ParameterizedTest
+    @MethodSource("models")
+    public void boundedScale(String model) throws IOException {
+        byte[][][] voxels = RenderRegressionTest.load(model);
+        final int size = voxels.length, big = size << 1;
+        final int[] tight = Tools3D.tightBounds(voxels, new int[]{0, 0, 0, size - 1, size - 1, size - 1});
+        // the scratch arrays are shared on purpose, so later calls see leftovers from earlier ones
+        byte[][][] nextColors = new byte[size][size][size], nextSlopes = new byte[size][size][size];
+
+        byte[][][] expected = Tools3D.smoothScale(voxels);
+        int[] bounds = tight.clone();
+        assertArrayEquals(expected, Tools3D.smoothScale(voxels, new byte[big][big][big], nextColors, nextSlopes, bounds));
+        assertArrayEquals(Tools3D.tightBounds(expected, new int[]{0, 0, 0, big - 1, big - 1, big - 1}), bounds);
+
+        expected = Tools3D.simpleScale(voxels);
+        bounds = tight.clone();
+        assertArrayEquals(expected, Tools3D.simpleScale(voxels, new byte[big][big][big], nextColors, nextSlopes, bounds));
+        assertArrayEquals(Tools3D.tightBounds(expected, new int[]{0, 0, 0, big - 1, big - 1, big - 1}), bounds);
+        bounds = tight.clone();
+        assertArrayEquals(expected, Tools3D.simpleScaleParallel(voxels, new byte[big][big][big], nextColors, nextSlopes, bounds));
+        assertArrayEquals(Tools3D.tightBounds(expected, new int[]{0, 0, 0, big - 1, big - 1, big - 1}), bounds);
+
+        expected = Tools3D.blockyScale(voxels);
+        bounds = tight.clone();
+        assertArrayEquals(expected, Tools3D.blockyScale(voxels, new byte[big][big][big], bounds));
+        assertArrayEquals(Tools3D.tightBounds(expected, new int[]{0, 0, 0, big - 1, big - 1, big - 1}), bounds);
+    }
+
+    private static byte[][][] noise(int xs, int ys, int zs) {
+        byte[][][] voxels = new byte[xs][ys][zs];
+        for (int x = 0; x < xs; x++) {
+            for (int y = 0; y < ys; y++) {
+                for (int z = 0; z < zs; z++) {
+                    voxels[x][y][z] = (byte) Hasher.randomize3(x * 0x10000L + y * 0x100L + z);
+                }
+            }
+        }
+        return voxels;
+    }
+
+    @Test
+    public void orientations() {
+        byte[][][] voxels = noise(7, 5, 6);
+        List<byte[][][]> seen = new ArrayList<>(48);
+        for (int o = 0; o < 48; o++) {
+            byte[][][] oriented = Tools3D.orient(voxels, o, null);
+            for (byte[][][] other : seen) {
+                assertFalse(Arrays.deepEquals(other, oriented), "orientation " + o + " repeats an earlier one");
+            }
+            seen.add(oriented);
+            for (int p = 0; p < 48; p++) {
+                assertArrayEquals(Tools3D.orient(voxels, Tools3D.composeOrientations(o, p), null),
+                        Tools3D.orient(oriented, p, null));
+            }
+        }
+        assertArrayEquals(voxels, seen.get(0));
+        byte[][][] mirrored = Tools3D.orient(voxels, Tools3D.orientation(0, 0, 0, true), null);
+        for (int x = 0; x < 7; x++) {
+            for (int y = 0; y < 5; y++) {
+                assertArrayEquals(voxels[6 - x][y], mirrored[x][y]);
+            }
+        }
+        for (int axis = 0; axis < 3; axis++) {
+            final int turn = Tools3D.orientation(axis == 0 ? 1 : 0, axis == 1 ? 1 : 0, axis == 2 ? 1 : 0, false);
+            int o = 0;
+            for (int i = 1; i <= 4; i++) {
+                o = Tools3D.composeOrientations(o, turn);
+                assertTrue(o < 24);
+                assertEquals(i == 4, o == 0);
+            }
+        }
+        assertEquals(24, Tools3D.orientation(4, 8, -4, true));
+    }
+
+    @Test
+    public void orientationYawMatchesRotate() {
+        byte[][][] voxels = noise(19, 19, 11);
+        for (int turns = 0; turns < 4; turns++) {
+            assertArrayEquals(Tools3D.rotate(voxels, turns), Tools3D.orient(voxels, Tools3D.orientation(turns, 0, 0, false), null));
+        }
+    }
+
+    @Test
+    public void orientInPlace() {
+        // bigger than one 16-cell block, and odd, so the blocked swaps have partial blocks and a middle layer
+        byte[][][] voxels = noise(37, 37, 37), buffer = new byte[37][37][37];
+        for (int o = 0; o < 48; o++) {
+            byte[][][] expected = Tools3D.orient(voxels, o, buffer);
+            assertArrayEquals(expected, Tools3D.orientInPlace(Tools3D.deepCopy(voxels), o));
+        }
+        byte[][][] flat = noise(8, 8, 3);
+        assertArrayEquals(Tools3D.orient(flat, Tools3D.orientation(3, 0, 0, true), null),
+                Tools3D.orientInPlace(Tools3D.deepCopy(flat), Tools3D.orientation(3, 0, 0, true)));
+        assertThrows(IllegalArgumentException.class, () -> Tools3D.orientInPlace(flat, Tools3D.orientation(0, 1, 0, false)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("models")
+    public void slidingCA(String model) throws IOException {
+        byte[][][] voxels = RenderRegressionTest.load(model);
+        assertArrayEquals(Tools3D.runCA(voxels, 1), Tools3D.runCAParallel(voxels, 1));
+        assertArrayEquals(Tools3D.runCA(voxels, 2), Tools3D.runCAParallel(voxels, 2));
+    }
+
+    @Test
+    public void slidingCANoise() {
+        // a few colors, lots of ties, some cells with the special color 2, and a short z-axis
+        byte[][][] voxels = new byte[20][17][9];
+        for (int x = 0; x < 20; x++) {
+            for (int y = 0; y < 17; y++) {
+                for (int z = 0; z < 9; z++) {
+                    final long h = Hasher.randomize3(x * 0x10000L + y * 0x100L + z);
+                    if((h & 3L) != 0L) voxels[x][y][z] = (byte) (1 + (h >>> 8 & 3L) + (h >>> 12 & 128L));
+                }
+            }
+        }
+        byte[][][] copy = Tools3D.deepCopy(voxels);
+        for (int level = 0; level <= 4; level++) {
+            assertArrayEquals(Tools3D.runCA(voxels, level), Tools3D.runCAParallel(voxels, level));
+        }
+        assertArrayEquals(copy, voxels);
+    }
+
+    @ParameterizedTest
+    @MethodSource("models")
+    public void maskedSoakAndHollow(String model) throws IOException {
+        byte[][][] voxels = RenderRegressionTest.load(model);
+        checkSoakAndHollow(voxels);
+    }
+
+    @Test
+    public void maskedSoakAndHollowNoise() {
+        // 70 is past one 64-bit word along z, and the fill is dense enough to have plenty of hidden voxels
+        byte[][][] voxels = new byte[70][70][70];
+        for (int x = 0; x < 70; x++) {
+            for (int y = 0; y < 70; y++) {
+                for (int z = 0; z < 70; z++) {
+                    final long h = Hasher.randomize3(x * 0x10000L + y * 0x100L + z);
+                    if((h & 7L) != 0L) voxels[x][y][z] = (byte) (1 + (h >>> 8 & 15L));
+                }
+            }
+        }
+        checkSoakAndHollow(voxels);
+    }
+
+    @ParameterizedTest
+    @MethodSource("models")
+    public void labeledParts(String model) throws IOException {
+        checkParts(RenderRegressionTest.load(model));
+    }
+
+    @Test
+    public void labeledPartsNoise() {
+        // sparse enough to break into many small groups, plus a few long thin ones
+        byte[][][] voxels = new byte[24][24][24];
+        for (int x = 0; x < 24; x++) {
+            for (int y = 0; y < 24; y++) {
+                for (int z = 0; z < 24; z++) {
+                    final long h = Hasher.randomize3(x * 0x10000L + y * 0x100L + z);
+                    if((h & 3L) == 0L || (x == 5 && y == 7) || (z == 3 && x == 20)) voxels[x][y][z] = (byte) (1 + (h >>> 8 & 15L));
+                }
+            }
+        }
+        checkParts(voxels);
+    }
+
+    private static void checkParts(byte[][][] voxels) {
+        assertArrayEquals(referenceLargestPart(voxels), Tools3D.largestPart(voxels));
+
+        ConnectedComponents components = new ConnectedComponents(voxels);
+        final int xs = voxels.length, ys = voxels[0].length, zs = voxels[0][0].length;
+        int total = 0;
+        for (int id = 1; id <= components.count; id++) {
+            total += components.sizes[id];
+        }
+        assertEquals(Tools3D.count(voxels), total);
+        for (int x = 0, i = 0; x < xs; x++) {
+            for (int y = 0; y < ys; y++) {
+                for (int z = 0; z < zs; z++, i++) {
+                    final int id = components.labels[i];
+                    assertEquals(voxels[x][y][z] != 0, id != 0);
+                    if(id == 0) continue;
+                    final int b = id * 6;
+                    assertTrue(x >= components.bounds[b] && y >= components.bounds[b + 1] && z >= components.bounds[b + 2]);
+                    assertTrue(x <= components.bounds[b + 3] && y <= components.bounds[b + 4] && z <= components.bounds[b + 5]);
+                }
+            }
+        }
+
+        // flood from a few seeds, some of which are outside the bounds and shouldn't spread
+        byte[][][] expected = new byte[xs][ys][zs], actual;
+        int first = Tools3D.firstTight(voxels);
+        if(first >= 0) expected[first / (ys * zs)][first / zs % ys][first % zs] = 1;
+        expected[xs / 2][ys / 2][zs / 2] = 2;
+        expected[xs - 1][0][zs - 1] = 3;
+        actual = Tools3D.deepCopy(expected);
+        assertEquals(referenceFlood(expected, voxels), Tools3D.flood(actual, voxels));
+        assertArrayEquals(expected, actual);
+    }
+
+    private static void checkSoakAndHollow(byte[][][] voxels) {
+        // with no clear materials, soakInPlace and hollowInPlace take their bit-packed paths
+        VoxIOExtended.lastMaterials.clear();
+        byte[][][] expected = Tools3D.deepCopy(voxels), actual = Tools3D.deepCopy(voxels);
+        referenceSoak(expected);
+        Tools3D.soakInPlace(actual);
+        assertArrayEquals(expected, actual);
+        referenceHollow(expected);
+        Tools3D.hollowInPlace(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    /**
+     * The per-voxel soak loop, for models where every color is opaque.
+     */
+    private static void referenceSoak(byte[][][] voxels) {
+        for (int x = 0; x < voxels.length; x++) {
+            for (int y = 0; y < voxels[x].length; y++) {
+                for (int z = 0; z < voxels[x][y].length; z++) {
+                    if(surface(voxels, x, y, z) > 0){
+                        byte b = voxels[x][y][z];
+                        if(surface(voxels, x, y, z-1) == -1) voxels[x][y][z-1] = b;
+                        if(surface(voxels, x-1, y, z) == -1) voxels[x-1][y][z] = b;
+                        if(surface(voxels, x, y-1, z) == -1) voxels[x][y-1][z] = b;
+                        if(surface(voxels, x+1, y, z) == -1) voxels[x+1][y][z] = b;
+                        if(surface(voxels, x, y+1, z) == -1) voxels[x][y+1][z] = b;
+                        if(surface(voxels, x, y, z+1) == -1) voxels[x][y][z+1] = b;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The per-voxel hollow loop, for models where every color is opaque.
+     */
+    private static void referenceHollow(byte[][][] voxels) {
+        for (int x = 0; x < voxels.length; x++) {
+            for (int y = 0; y < voxels[x].length; y++) {
+                for (int z = 0; z < voxels[x][y].length; z++) {
+                    if(surface(voxels, x, y, z) < 0) voxels[x][y][z] = 0;
+                }
+            }
+        }
+    }
+
+    private static int surface(byte[][][] voxels, int x, int y, int z) {
+        if(x < 0 || y < 0 || z < 0 || x >= voxels.length || y >= voxels[x].length || z >= voxels[x][y].length
+                || voxels[x][y][z] == 0)
+            return 0;
+        if(x == 0 || y == 0 || z == 0 || x == voxels.length - 1 || y == voxels[x].length - 1 || z == voxels[x][y].length - 1)
+            return 1;
+        if(voxels[x-1][y][z] == 0 || voxels[x][y-1][z] == 0 || voxels[x][y][z-1] == 0
+                || voxels[x+1][y][z] == 0 || voxels[x][y+1][z] == 0 || voxels[x][y][z+1] == 0)
+            return 1;
+        return -1;
+    }
+
+    /**
+     * The sweep-until-nothing-changes flood that Tools3D used to have.
+     */
+    private static int referenceFlood(byte[][][] base, byte[][][] bounds)
+    {
+        final int xs = base.length, ys = base[0].length, zs = base[0][0].length;
+        int size = Tools3D.count(base), totalSize = 0;
+
+        byte[][][] nx = Tools3D.deepCopy(base);
+        byte t;
+        do {
+            totalSize += size;
+            size = 0;
+            for (int x = 0; x < xs; x++) {
+                for (int y = 0; y < ys; y++) {
+                    for (int z = 0; z < zs; z++) {
+                        if (nx[x][y][z] != 0 && (t = bounds[x][y][z]) != 0) {
+                            nx[x][y][z] = t;
+                            if (x > 0 && nx[x - 1][y][z] == 0 && (t = bounds[x - 1][y][z]) != 0) {
+                                nx[x - 1][y][z] = t;
+                                ++size;
+                            }
+                            if (x < xs - 1 && nx[x + 1][y][z] == 0 && (t = bounds[x + 1][y][z]) != 0) {
+                                nx[x + 1][y][z] = t;
+                                ++size;
+                            }
+                            if (y > 0 && nx[x][y - 1][z] == 0 && (t = bounds[x][y - 1][z]) != 0) {
+                                nx[x][y - 1][z] = t;
+                                ++size;
+                            }
+                            if (y < ys - 1 && nx[x][y + 1][z] == 0 && (t = bounds[x][y + 1][z]) != 0) {
+                                nx[x][y + 1][z] = t;
+                                ++size;
+                            }
+                            if (z > 0 && nx[x][y][z - 1] == 0 && (t = bounds[x][y][z - 1]) != 0) {
+                                nx[x][y][z - 1] = t;
+                                ++size;
+                            }
+                            if (z < zs - 1 && nx[x][y][z + 1] == 0 && (t = bounds[x][y][z + 1]) != 0) {
+                                nx[x][y][z + 1] = t;
+                                ++size;
+                            }
+                        }
+                    }
+                }
+            }
+        } while (size != 0);
+        Tools3D.deepCopyInto(nx, base);
+        return totalSize + size;
+    }
+
+    /**
+     * The flood-per-group largestPart that Tools3D used to have.
+     */
+    private static byte[][][] referenceLargestPart(byte[][][] voxels)
+    {
+        final int xs = voxels.length, ys = voxels[0].length, zs = voxels[0][0].length;
+        int fst = Tools3D.firstTight(voxels), bestSize = 0, currentSize, x, y, z;
+
+        byte[][][] remaining = Tools3D.deepCopy(voxels), filled = new byte[xs][ys][zs],
+                choice = new byte[xs][ys][zs];
+        while (fst >= 0) {
+            Tools3D.fill(filled, 0);
+            x = fst / (ys * zs);
+            y = (fst / zs) % ys;
+            z = fst % zs;
+            filled[x][y][z] = voxels[x][y][z];
+            currentSize = referenceFlood(filled, remaining);
+            if(currentSize > bestSize)
+            {
+                bestSize = currentSize;
+                Tools3D.deepCopyInto(filled, choice);
+            }
+
+            for (x = 0; x < xs; x++) {
+                for (y = 0; y < ys; y++) {
+                    for (z = 0; z < zs; z++) {
+                        if(filled[x][y][z] != 0)
+                            remaining[x][y][z] = 0;
+                    }
+                }
+            }
+            fst = Tools3D.firstTight(remaining);
+        }
+        return choice;
+    }
+
+    @Test
+    public void ambientOcclusion() {
+        // uneven sizes, so a mix-up between axes would show
+        byte[][][] voxels = new byte[13][11][9];
+        for (int x = 0; x < 13; x++) {
+            for (int y = 0; y < 11; y++) {
+                for (int z = 0; z < 9; z++) {
+                    final long h = Hasher.randomize3(x * 0x10000L + y * 0x100L + z);
+                    if((h & 3L) != 0L) voxels[x][y][z] = (byte) (1 + (h >>> 8 & 15L));
+                }
+            }
+        }
+        for (int radius = 1; radius <= 7; radius += 3) {
+            byte[][][] actual = Tools3D.ambientOcclusion(voxels, radius, null);
+            final int total = (radius * 2 + 1) * (radius * 2 + 1) * (radius * 2 + 1);
+            for (int x = 0; x < 13; x++) {
+                for (int y = 0; y < 11; y++) {
+                    for (int z = 0; z < 9; z++) {
+                        int filled = 0;
+                        for (int i = x - radius; i <= x + radius; i++) {
+                            for (int j = y - radius; j <= y + radius; j++) {
+                                for (int k = z - radius; k <= z + radius; k++) {
+                                    if(i >= 0 && j >= 0 && k >= 0 && i < 13 && j < 11 && k < 9 && voxels[i][j][k] != 0)
+                                        filled++;
+                                }
+                            }
+                        }
+                        final int expected = voxels[x][y][z] == 0 ? 0 : (total - filled) * 255 / (total - 1);
+                        assertEquals(expected, actual[x][y][z] & 255, "radius " + radius + " at " + x + "," + y + "," + z);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void normalEncoding() {
+        final float[] decoded = new float[3];
+        for (int i = 0; i < 2000; i++) {
+            final long h = Hasher.randomize3(i);
+            final float x = (h & 0xFFFF) / 32768f - 1f, y = (h >>> 16 & 0xFFFF) / 32768f - 1f, z = (h >>> 32 & 0xFFFF) / 32768f - 1f;
+            final float len = (float) Math.sqrt(x * x + y * y + z * z);
+            if(len < 0.01f) continue;
+            Tools3D.decodeNormal(Tools3D.encodeNormal(x, y, z), decoded);
+            final float dot = (x * decoded[0] + y * decoded[1] + z * decoded[2]) / len;
+            // 8 bits per octahedral coordinate keeps every direction within about a degree
+            assertTrue(dot > 0.9997f, x + "," + y + "," + z + " came back as " + Arrays.toString(decoded));
+        }
+        for (float[] axis : new float[][]{{0, 0, 1}, {0, 0, -1}, {1, 0, 0}, {0, -1, 0}}) {
+            Tools3D.decodeNormal(Tools3D.encodeNormal(axis[0], axis[1], axis[2]), decoded);
+            assertArrayEquals(axis, decoded, 1e-6f);
+        }
+    }
+
+    @Test
+    public void surfaceNormalsOfBall() {
+        final int size = 24;
+        final float c = (size - 1) * 0.5f;
+        byte[][][] voxels = new byte[size][size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (int z = 0; z < size; z++) {
+                    if((x - c) * (x - c) + (y - c) * (y - c) + (z - c) * (z - c) <= 81f) voxels[x][y][z] = 1;
+                }
+            }
+        }
+        short[][][] normals = Tools3D.surfaceNormals(voxels, 3, null);
+        final float[] n = new float[3];
+        int surface = 0;
+        for (int x = 1; x < size - 1; x++) {
+            for (int y = 1; y < size - 1; y++) {
+                for (int z = 1; z < size - 1; z++) {
+                    if(voxels[x][y][z] == 0) continue;
+                    final boolean inside = voxels[x - 1][y][z] != 0 && voxels[x + 1][y][z] != 0 && voxels[x][y - 1][z] != 0
+                            && voxels[x][y + 1][z] != 0 && voxels[x][y][z - 1] != 0 && voxels[x][y][z + 1] != 0;
+                    if(inside) {
+                        assertEquals(0, normals[x][y][z]);
+                        continue;
+                    }
+                    surface++;
+                    Tools3D.decodeNormal(normals[x][y][z], n);
+                    final float dx = x - c, dy = y - c, dz = z - c, len = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+                    assertTrue((n[0] * dx + n[1] * dy + n[2] * dz) / len > 0.95f, "normal at " + x + "," + y + "," + z + " is " + Arrays.toString(n));
+                }
+            }
+        }
+        assertTrue(surface > 500);
+    }
+}
@@ -3,8 +3,8 @@ package com.github.tommyettinger.headless;
 import com.badlogic.gdx.backends.headless.HeadlessApplication;
 import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
 import com.github.tommyettinger.LittleEndianDataInputStream;
+import com.github.tommyettinger.FrameStream;
 import com.github.tommyettinger.SpotVox;
-import com.github.tommyettinger.Tools3D;
 import com.github.tommyettinger.io.*;
 import picocli.CommandLine;
 
@@ -65,6 +65,51 @@ public class HeadlessLauncher implements Callable<Integer> {
 	@CommandLine.Option(names = {"-x", "--expand"}, description = "How far soft lighting should expand into unlit areas, in voxels. Must be a non-negative integer.", defaultValue = "0")
 	public int expand = 0;
 
+	@CommandLine.Option(names = {"--fixed-point"}, description = "Projects voxels with integer fixed-point math instead of floats when rendering one angle at a time; frames are exactly the same.", defaultValue = "false")
+	public boolean fixedPoint = false;
+
+	@CommandLine.Option(names = {"--batch"}, description = "How many angles to render with each pass over the model; higher uses more memory but can be faster for big models.", defaultValue = "1")
+	public int batch = 1;
+
+	@CommandLine.Option(names = {"--symmetry"}, description = "If the model looks the same after a half-turn or quarter-turn, reuses frames instead of rendering them again.", defaultValue = "false")
+	public boolean symmetry = false;
+
+	@CommandLine.Option(names = {"--bake"}, description = "Computes ambient light once per model instead of spreading light in every frame; faster, with a somewhat different look.", defaultValue = "false")
+	public boolean bake = false;
+
+	@CommandLine.Option(names = {"--voxel-normals"}, description = "Makes normal maps from per-voxel normals computed once per model, instead of from each frame's depth; needs --normals.", defaultValue = "false")
+	public boolean voxelNormals = false;
+
+	@CommandLine.Option(names = {"--writers"}, description = "How many threads write PNG files while rendering continues; 0 writes each file before rendering the next.", defaultValue = "1")
+	public int writers = 1;
+
+	@CommandLine.Option(names = {"--atlas"}, description = "Writes one trimmed, packed atlas PNG of all angles per scale, with a JSON manifest, instead of one PNG per angle.", defaultValue = "false")
+	public boolean atlas = false;
+
+	@CommandLine.Option(names = {"--gif-samples"}, description = "If more than 0, picks the turntable GIF's palette from this many angles, then writes each frame as it is rendered, keeping one frame in memory; 16 is usually enough for large models. The default, 0, keeps all 128 frames and analyzes every one, using far more memory.", defaultValue = "0")
+	public int gifSamples = 0;
+
+	@CommandLine.Option(names = {"--model-palette"}, description = "Makes the turntable GIF's palette once from the model's colors and lighting, instead of from rendered frames, and writes frames as they are rendered.", defaultValue = "false")
+	public boolean modelPalette = false;
+
+	@CommandLine.Option(names = {"--crop"}, description = "Crops each angle's PNG to what was drawn, and writes a JSON file of where each crop was; one of: none, union (same size for all angles), frame (each angle on its own).", defaultValue = "none")
+	public String crop = "none";
+
+	@CommandLine.Option(names = {"--fit"}, description = "Sizes each render to what the model can reach at the angles being rendered, instead of what any model of this size could; saves memory and time for long or flat models.", defaultValue = "false")
+	public boolean fit = false;
+
+	@CommandLine.Option(names = {"--dedupe"}, description = "Writes a PNG that exactly repeats an earlier one as a hard link to it (or shares its place in an atlas) instead of encoding it again.", defaultValue = "false")
+	public boolean dedupe = false;
+
+	@CommandLine.Option(names = {"--indexed"}, description = "Writes each PNG with 256 or fewer colors as a smaller 8-bit palette PNG, losing nothing; PNGs with more colors stay RGBA.", defaultValue = "false")
+	public boolean indexed = false;
+
+	@CommandLine.Option(names = {"--stream"}, description = "Streams the turntable at the largest scale to this file or named pipe, or to standard output if '-', for a video encoder to read, instead of writing GIFs. Uses --turn-fps, or 30 if that is 0. With '-', messages go to standard error.")
+	public String stream = null;
+
+	@CommandLine.Option(names = {"--stream-format"}, description = "The format for --stream; one of: y4m (YUV4MPEG2, with size and frame rate in its header), rgba (raw frames, with alpha; the size and frame rate are printed to standard error before the first frame).", defaultValue = "y4m")
+	public String streamFormat = "y4m";
+
 	@CommandLine.Parameters(description = "The absolute or relative path to a MagicaVoxel .vox file.", defaultValue = "Eye-Tyrant.vox")
 	public String input = "Eye-Tyrant.vox";
 
@@ -77,6 +122,10 @@ public class HeadlessLauncher implements Callable<Integer> {
 	public Integer call() {
 		HeadlessApplicationConfiguration configuration = new HeadlessApplicationConfiguration();
 		configuration.updatesPerSecond = -1;
+		if("-".equals(stream))
+			System.setOut(System.err);
+		if(stream != null && turn == 0)
+			turn = 30;
 		if(SpotVox.DEBUG)
 			input = "../vox/" + input;
 		try {
@@ -86,58 +135,32 @@ public class HeadlessLauncher implements Callable<Integer> {
 				System.out.println("Unable to read input file.");
 				return -1;
 			}
-			int xChange = 0, yChange = 0, zChange = -VoxIOExtended.minZ;
-			if(VoxIOExtended.minX < 0) {
-				xChange = -VoxIOExtended.minX;
-				VoxIOExtended.maxX += xChange;
-				VoxIOExtended.minX = 0;
-			}
-			if(VoxIOExtended.minY < 0) {
-				yChange = -VoxIOExtended.minY;
-				VoxIOExtended.maxY += yChange;
-				VoxIOExtended.minY = 0;
-			}
-
-			if(size < 0) {
-				size = 1;
-				for(GroupChunk gc : model.groupChunks.values()) {
-					for (int ch : gc.childIds) {
-						TransformChunk tc = model.transformChunks.get(ch);
-						if (tc != null) {
-							for (ShapeModel sm : model.shapeChunks.get(tc.childId).models) {
-								byte[][][] g = model.grids.get(sm.id);
-								size = Math.max(size, Math.round(tc.translation.x + g.length + xChange));
-								size = Math.max(size, Math.round(tc.translation.y + g[0].length + yChange));
-								size = Math.max(size, Math.round(tc.translation.z + g[0][0].length + zChange));
-							}
-						}
-					}
-				}
-			}
-
-			byte[][][] voxels = new byte[size][size][size];
-			for(GroupChunk gc : model.groupChunks.values()) {
-				for (int ch : gc.childIds) {
-					TransformChunk tc = model.transformChunks.get(ch);
-					if (tc != null) {
-						for (ShapeModel sm : model.shapeChunks.get(tc.childId).models) {
-							byte[][][] g = model.grids.get(sm.id);
-							Tools3D.translateCopyInto(g, voxels, Math.round(tc.translation.x + xChange), Math.round(tc.translation.y + yChange), Math.round(tc.translation.z + zChange));
-						}
-					}
-				}
-			}
-			VoxIOExtended.maxZ += zChange;
-			VoxIOExtended.minZ = 0;
+			byte[][][] voxels = VoxIOExtended.mergeModel(model, size);
+			size = voxels.length;
 
 //			VoxIOExtended.writeVOX("debugOutput.vox", voxels, VoxIOExtended.lastPalette, VoxIOExtended.lastMaterials);
 
 
 			int nameStart = Math.max(input.lastIndexOf('/'), input.lastIndexOf('\\')) + 1;
 			this.input = input.substring(nameStart, input.indexOf('.', nameStart));
-			new HeadlessApplication(new SpotVox(input, size, voxels, multiple, edge, saturation, turn, rotations,
-					yaw, pitch, roll, distortHXY, distortVXY, distortVZ, normals, lightPower, baseLight, expand),
-					configuration){
+			SpotVox spotVox = new SpotVox(input, size, voxels, multiple, edge, saturation, turn, rotations,
+					yaw, pitch, roll, distortHXY, distortVXY, distortVZ, normals, lightPower, baseLight, expand);
+			spotVox.fixedPoint = fixedPoint;
+			spotVox.batch = batch;
+			spotVox.symmetry = symmetry;
+			spotVox.bake = bake;
+			spotVox.voxelNormals = voxelNormals;
+			spotVox.writers = writers;
+			spotVox.atlas = atlas;
+			spotVox.gifSamples = gifSamples;
+			spotVox.modelPalette = modelPalette;
+			spotVox.crop = SpotVox.cropMode(crop);
+			spotVox.fit = fit;
+			spotVox.dedupe = dedupe;
+			spotVox.indexed = indexed;
+			spotVox.stream = stream;
+			spotVox.streamY4M = FrameStream.isY4M(streamFormat);
+			new HeadlessApplication(spotVox, configuration){
 				{
 					try {
 						mainLoopThread.join();